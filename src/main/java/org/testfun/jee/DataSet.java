@@ -0,0 +1,36 @@
+package org.testfun.jee;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Loads fixture data into the database once for all the tests of a class run by the {@link EjbWithMockitoRunner}.
+ * <p>
+ * The data set files are loaded using JDBC batches into the transaction of the first test, after which a JDBC savepoint
+ * is set. Every later test of the class starts by rolling back to the savepoint, so it sees exactly the loaded data
+ * without it being reloaded. The data is rolled back when all the tests of the class are done. When each test has its
+ * own database (the <code>org.testfun.jee.parallel</code> system property is set), the data is loaded for each test.
+ * <p>
+ * See {@link org.testfun.jee.runner.DataSetLoader} for the supported formats. Note that the loaded rows should use
+ * identifiers that don't collide with those generated for entities persisted by the tests.
+ * <pre>{@code
+ * @RunWith(EjbWithMockitoRunner.class)
+ * @DataSet({"users.json", "orders.csv"})
+ * public class OrderDaoTest {...}
+ * }</pre>
+ */
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface DataSet {
+
+    /**
+     * @return the data set files (JSON or CSV) - resolved relative to the package of the test class unless they start
+     * with a '/'
+     */
+    String[] value();
+
+}
@@ -1,69 +1,126 @@
 package org.testfun.jee;
 
-import org.junit.runner.Description;
-import org.junit.runner.Runner;
-import org.junit.runner.manipulation.Filter;
-import org.junit.runner.manipulation.Filterable;
-import org.junit.runner.manipulation.NoTestsRemainException;
 import org.junit.runner.notification.RunNotifier;
 import org.junit.runners.BlockJUnit4ClassRunner;
+import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.Statement;
 import org.mockito.MockitoAnnotations;
 import org.mockito.internal.runners.util.FrameworkUsageValidator;
+import org.testfun.jee.runner.DataSetFixture;
 import org.testfun.jee.runner.DependencyInjector;
+import org.testfun.jee.runner.EjbWithMockitoRunnerException;
+import org.testfun.jee.runner.InjectionContext;
 import org.testfun.jee.runner.inject.TransactionUtils;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A JUnit runner that allows injection of JEE EJBs as well as Mockito mock objects directly into the test instance.
  * <p>
  * To use this runner, simply annotate the test class with
  * <pre>{@code @RunWith(EjbWithMockitoRunner.class) }</pre>
+ * <p>
+ * Each test runs with its own {@link InjectionContext} so test methods may run in parallel (e.g. using JUnit's
+ * <code>ParallelComputer</code> or surefire's <code>parallel=methods</code>) when the <code>org.testfun.jee.parallel</code>
+ * system property is set. Otherwise all the tests share a single entity manager and transaction, so a test starting
+ * while another test is running fails rather than rolling back the other test's changes.
  */
-public class EjbWithMockitoRunner extends Runner implements Filterable {
+public class EjbWithMockitoRunner extends BlockJUnit4ClassRunner {
+
+    // Number of tests running in the JVM - used for detecting concurrent tests sharing the entity manager
+    private static final AtomicInteger RUNNING_TESTS = new AtomicInteger();
 
-    private BlockJUnit4ClassRunner runner;
+    private final DataSetFixture dataSetFixture;
 
     public EjbWithMockitoRunner(Class<?> klass) throws InvocationTargetException, InitializationError {
-        runner = new BlockJUnit4ClassRunner(klass) {
+        super(klass);
+
+        DataSet dataSet = klass.getAnnotation(DataSet.class);
+        dataSetFixture = dataSet != null ? new DataSetFixture(klass, dataSet.value()) : null;
+    }
+
+    @Override
+    protected Statement methodBlock(FrameworkMethod method) {
+        // Creating the test rolls back the transaction of the shared entity manager - fail before doing so
+        if (RUNNING_TESTS.incrementAndGet() > 1 && !Boolean.getBoolean("org.testfun.jee.parallel")) {
+            RUNNING_TESTS.decrementAndGet();
+            return new Statement() {
+                @Override
+                public void evaluate() {
+                    throw new EjbWithMockitoRunnerException("Tests are running concurrently while sharing a single entity manager and transaction - " +
+                            "set the org.testfun.jee.parallel system property in order to run tests in parallel");
+                }
+            };
+        }
+
+        // Create a new injection context before the test is created so its dependencies are injected using this context
+        final InjectionContext context = InjectionContext.create();
+        final Statement next;
+        InjectionContext previous = context.bind();
+        try {
+            next = super.methodBlock(method);
+        } catch (RuntimeException | Error e) {
+            RUNNING_TESTS.decrementAndGet();
+            throw e;
+        } finally {
+            context.unbind(previous);
+        }
+
+        return new Statement() {
             @Override
-            protected Object createTest() throws Exception {
-                Object test = super.createTest();
+            public void evaluate() throws Throwable {
+                InjectionContext previous = context.bind();
+                try {
+                    next.evaluate();
+                } finally {
+                    context.unbind(previous);
+                    context.close();
+                    RUNNING_TESTS.decrementAndGet();
+                }
+            }
+        };
+    }
 
-                // init annotated mocks before tests
-                MockitoAnnotations.initMocks(test);
+    @Override
+    protected Object createTest() throws Exception {
+        Object test = super.createTest();
 
-                // inject annotated EJBs before tests
-                injectEjbs(test);
+        // init annotated mocks before tests
+        MockitoAnnotations.initMocks(test);
 
-                // Rollback any existing transaction before starting a new one
-                TransactionUtils.rollbackTransaction();
-                TransactionUtils.endTransaction(true);
+        // inject annotated EJBs before tests
+        injectEjbs(test);
 
-                // Start a new transaction
-                TransactionUtils.beginTransaction();
+        if (dataSetFixture != null) {
+            // Start with the data set of the class - rolled back to its savepoint rather than reloaded
+            dataSetFixture.beginTest();
+            return test;
+        }
 
-                return test;
-            }
+        // Rollback any existing transaction before starting a new one
+        TransactionUtils.rollbackTransaction();
+        TransactionUtils.endTransaction(true);
 
-        };
+        // Start a new transaction
+        TransactionUtils.beginTransaction();
 
+        return test;
     }
 
+    @Override
     public void run(RunNotifier notifier) {
         // add listener that validates framework usage at the end of each test
         notifier.addListener(new FrameworkUsageValidator(notifier));
 
-        runner.run(notifier);
-    }
-
-    public Description getDescription() {
-        return runner.getDescription();
-    }
-
-    public void filter(Filter filter) throws NoTestsRemainException {
-        runner.filter(filter);
+        try {
+            super.run(notifier);
+        } finally {
+            if (dataSetFixture != null) {
+                dataSetFixture.release();
+            }
+        }
     }
 
     private void injectEjbs(Object target) {
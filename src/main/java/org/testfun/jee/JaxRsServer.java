@@ -1,6 +1,8 @@
 package org.testfun.jee;
 
 import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
 import io.undertow.security.idm.Account;
 import io.undertow.security.idm.Credential;
 import io.undertow.security.idm.IdentityManager;
@@ -8,16 +10,32 @@ import io.undertow.servlet.api.DeploymentInfo;
 import io.undertow.servlet.api.LoginConfig;
 import io.undertow.servlet.api.SecurityConstraint;
 import io.undertow.servlet.api.SecurityInfo;
+import io.undertow.servlet.api.ThreadSetupAction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.jboss.resteasy.plugins.server.embedded.SimplePrincipal;
 import org.jboss.resteasy.plugins.server.undertow.UndertowJaxrsServer;
 import org.jboss.resteasy.spi.ResteasyDeployment;
 import org.junit.rules.MethodRule;
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
 import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.Statement;
 import org.testfun.jee.runner.DependencyInjector;
+import org.testfun.jee.runner.InjectionContext;
+import org.testfun.jee.runner.StatementRecorder;
 import org.testfun.jee.runner.inject.InjectionUtils;
+import org.testfun.jee.runner.jaxrs.DaemonThreadFactory;
+import org.testfun.jee.runner.jaxrs.DeploymentCache;
+import org.testfun.jee.runner.jaxrs.DispatcherHttpHandler;
+import org.testfun.jee.runner.jaxrs.InMemoryClientEngine;
 import org.testfun.jee.runner.jaxrs.JaxRsException;
+import org.testfun.jee.runner.jaxrs.LoadGenerator;
+import org.testfun.jee.runner.jaxrs.RestClient;
 import org.testfun.jee.runner.jaxrs.RestRequest;
+import org.testfun.jee.runner.jaxrs.ServerMetricsFilter;
+import org.testfun.jee.runner.jaxrs.VirtualThreads;
+import org.xnio.Option;
 import org.xnio.StreamConnection;
 import org.xnio.channels.AcceptingChannel;
 
@@ -26,20 +44,83 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.lang.reflect.Field;
 import java.net.InetSocketAddress;
+import java.net.URI;
 import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * A JUnit rule that launches a JAX-RS server (using RESTeasy and Undertow) running in the same JVM as the test itself.
  * Injection of EJBs and mocks into the JAX-RS resources requires running the test using the {@link EjbWithMockitoRunner} runner.
+ * <p>
+ * By default a new server is started for each test method. In order to start the server once for all the test methods
+ * of a class, use the same rule as both a <code>@ClassRule</code> and a <code>@Rule</code>:
+ * <pre>{@code
+ * @ClassRule
+ * public static JaxRsServer classServer = JaxRsServer.forResources(ExampleResource.class);
+ *
+ * @Rule
+ * public JaxRsServer jaxRsServer = classServer;
+ * }</pre>
+ * A server created using {@link #inMemory()} doesn't listen on any port - requests are dispatched directly into RESTEasy
+ * on the test's thread.
+ * <p>
+ * A server created using {@link #pooled()} is leased from a pool of servers started in the background and returned
+ * to the pool when the test is done, which suits tests running in parallel.
+ * <p>
+ * A server created using {@link #jvmScoped()} is started once and shared by all the test classes using the same
+ * resources, providers and port until the JVM exits.
+ * <p>
+ * When the server is shared, the resources are re-instantiated (and their dependencies re-injected) before each test
+ * so they use the EJBs and mocks of the running test. Tests using the same shared server are run one at a time.
  */
-public class JaxRsServer implements MethodRule {
+public class JaxRsServer implements MethodRule, TestRule {
+
+    private static final Logger LOGGER = LogManager.getLogger(JaxRsServer.class);
+
+    private static final Map<String, ServerInstance> JVM_SERVERS = new HashMap<>();
 
     private int requestedPort = 0;
     private int port = 0;
 
-    private CustomUndertowJaxrsServer jaxRsServer;
+    private boolean jvmScoped;
+
+    private boolean inMemory;
+
+    private boolean lean;
+
+    private int clientPoolSize = RestClient.DEFAULT_POOL_SIZE;
+
+    // Undertow settings - zero or null for Undertow's defaults
+    private int ioThreads;
+    private int workerThreads;
+    private int bufferSize;
+    private Boolean directBuffers;
+
+    private Map<Option<?>, Object> serverOptions = new LinkedHashMap<>();
+
+    private boolean virtualThreads;
+
+    private boolean serverMetrics;
+
+    // Number of pre-started servers kept by the pool of this server's configuration - zero when not pooled
+    private int poolSize;
+
+    private ServerInstance server;
+
+    // Set while the rule is applied as a class rule - the server is then shared by the test methods of the class
+    private boolean classScoped;
 
     private Class[] resourceClasses;
 
@@ -59,25 +140,247 @@ public class JaxRsServer implements MethodRule {
         this.resourceClasses = resourceClasses;
     }
 
+    /**
+     * Rejects configurations combining modes which can't be used together, rather than silently ignoring some of them.
+     */
+    private JaxRsServer checkModes() {
+        if (inMemory) {
+            if (requestedPort != 0) {
+                throw new JaxRsException("In-memory servers don't listen on a port");
+            }
+            if (lean || virtualThreads) {
+                throw new JaxRsException("In-memory servers dispatch requests on the calling thread - they can't be lean or use virtual threads");
+            }
+            if (ioThreads != 0 || workerThreads != 0 || bufferSize != 0 || directBuffers != null || !serverOptions.isEmpty()) {
+                throw new JaxRsException("In-memory servers don't start Undertow - Undertow settings can't be used");
+            }
+        }
+
+        if (jvmScoped && poolSize > 0) {
+            throw new JaxRsException("JVM scoped servers can't be pooled");
+        }
+
+        if (poolSize > 0 && requestedPort != 0) {
+            throw new JaxRsException("Pooled servers can't listen on a specific port");
+        }
+
+        return this;
+    }
+
+    private JaxRsServer copy() {
+        JaxRsServer newServer = new JaxRsServer(resourceClasses);
+        newServer.requestedPort = this.requestedPort;
+        newServer.providerClasses = this.providerClasses;
+        newServer.jvmScoped = this.jvmScoped;
+        newServer.inMemory = this.inMemory;
+        newServer.lean = this.lean;
+        newServer.clientPoolSize = this.clientPoolSize;
+        newServer.ioThreads = this.ioThreads;
+        newServer.workerThreads = this.workerThreads;
+        newServer.bufferSize = this.bufferSize;
+        newServer.directBuffers = this.directBuffers;
+        newServer.serverOptions = new LinkedHashMap<>(this.serverOptions);
+        newServer.virtualThreads = this.virtualThreads;
+        newServer.poolSize = this.poolSize;
+        newServer.serverMetrics = this.serverMetrics;
+        return newServer;
+    }
+
     /**
      * Optionally override the default selected port to bind to.
      * @param requestedPort TCP port to listen to
      * @return a new JaxRsServer
      */
     public JaxRsServer port(int requestedPort) {
-        JaxRsServer newServer = new JaxRsServer(resourceClasses);
+        JaxRsServer newServer = copy();
         newServer.requestedPort = requestedPort;
-        newServer.providerClasses = this.providerClasses;
-        return newServer;
+        return newServer.checkModes();
     }
 
     public JaxRsServer providers(Class... providerClasses) {
-        JaxRsServer newServer = new JaxRsServer(resourceClasses);
-        newServer.requestedPort = this.requestedPort;
+        JaxRsServer newServer = copy();
         newServer.providerClasses = providerClasses;
         return newServer;
     }
 
+    /**
+     * Share the server with all the tests (of any class) using a JVM scoped server with the same resources, providers
+     * and port. The server is started by the first test using it and stopped when the JVM exits.
+     * @return a new JaxRsServer
+     */
+    public JaxRsServer jvmScoped() {
+        JaxRsServer newServer = copy();
+        newServer.jvmScoped = true;
+        return newServer.checkModes();
+    }
+
+    /**
+     * Dispatch the requests directly into RESTEasy, on the calling thread, using mock HTTP request and response objects
+     * instead of starting an HTTP listener. Requests sent by {@link #jsonRequest(String)} and {@link #formRequest(String)}
+     * behave the same, while no port is allocated (the port is 0). In-memory servers can't be combined with settings of
+     * the HTTP listener (port, lean, virtual threads and Undertow settings).
+     * @return a new JaxRsServer
+     */
+    public JaxRsServer inMemory() {
+        JaxRsServer newServer = copy();
+        newServer.inMemory = true;
+        return newServer.checkModes();
+    }
+
+    /**
+     * Mount RESTEasy as a plain Undertow handler instead of deploying it in a servlet container, which starts faster
+     * and handles requests with less overhead. Basic authentication credentials are exposed to the resources through
+     * their <code>SecurityContext</code> only when a request carries them. Servlet objects (e.g. <code>HttpServletRequest</code>)
+     * can't be injected into the resources of a lean server.
+     * @return a new JaxRsServer
+     */
+    public JaxRsServer lean() {
+        JaxRsServer newServer = copy();
+        newServer.lean = true;
+        return newServer.checkModes();
+    }
+
+    /**
+     * Optionally override the number of keep-alive connections the server's client keeps open for sending requests.
+     * @param clientPoolSize maximal number of pooled connections
+     * @return a new JaxRsServer
+     */
+    public JaxRsServer clientPoolSize(int clientPoolSize) {
+        JaxRsServer newServer = copy();
+        newServer.clientPoolSize = clientPoolSize;
+        return newServer;
+    }
+
+    /**
+     * Optionally override the number of Undertow IO threads (accepting connections and reading requests).
+     * @param ioThreads number of IO threads
+     * @return a new JaxRsServer
+     */
+    public JaxRsServer ioThreads(int ioThreads) {
+        JaxRsServer newServer = copy();
+        newServer.ioThreads = ioThreads;
+        return newServer.checkModes();
+    }
+
+    /**
+     * Optionally override the number of Undertow worker threads invoking the resources, which limits the number of
+     * requests handled concurrently (unless {@link #virtualThreads()} is used).
+     * @param workerThreads number of worker threads
+     * @return a new JaxRsServer
+     */
+    public JaxRsServer workerThreads(int workerThreads) {
+        JaxRsServer newServer = copy();
+        newServer.workerThreads = workerThreads;
+        return newServer.checkModes();
+    }
+
+    /**
+     * Optionally override the size of the buffers Undertow uses for reading requests and writing responses.
+     * @param bufferSize buffer size in bytes
+     * @return a new JaxRsServer
+     */
+    public JaxRsServer bufferSize(int bufferSize) {
+        JaxRsServer newServer = copy();
+        newServer.bufferSize = bufferSize;
+        return newServer.checkModes();
+    }
+
+    /**
+     * Optionally override whether Undertow allocates its buffers outside of the heap.
+     * @param directBuffers true for direct buffers
+     * @return a new JaxRsServer
+     */
+    public JaxRsServer directBuffers(boolean directBuffers) {
+        JaxRsServer newServer = copy();
+        newServer.directBuffers = directBuffers;
+        return newServer.checkModes();
+    }
+
+    /**
+     * Set an Undertow server option, e.g. <code>serverOption(UndertowOptions.MAX_ENTITY_SIZE, 1024L)</code>.
+     * @param option the option (see {@link io.undertow.UndertowOptions})
+     * @param value the option's value
+     * @return a new JaxRsServer
+     */
+    public <T> JaxRsServer serverOption(Option<T> option, T value) {
+        JaxRsServer newServer = copy();
+        newServer.serverOptions.put(option, value);
+        return newServer.checkModes();
+    }
+
+    /**
+     * Invoke the resources on a new virtual thread per request instead of on the worker threads, so resources blocking
+     * on EJB or JDBC calls don't limit the number of requests handled concurrently. Virtual threads require JDK 21+ -
+     * older JVMs use a new (pooled) platform thread per concurrent request instead.
+     * @return a new JaxRsServer
+     */
+    public JaxRsServer virtualThreads() {
+        JaxRsServer newServer = copy();
+        newServer.virtualThreads = true;
+        return newServer.checkModes();
+    }
+
+    /**
+     * Measure the server-side handling time and count the JDBC statements executed for each request, returned in
+     * response headers (see {@link ServerMetricsFilter}) and asserted by {@link RestRequest#expectMaxServerMillis(long)}
+     * and {@link RestRequest#expectMaxQueries(int)}.
+     * @return a new JaxRsServer
+     */
+    public JaxRsServer serverMetrics() {
+        JaxRsServer newServer = copy();
+        newServer.serverMetrics = true;
+        return newServer;
+    }
+
+    /**
+     * Lease a pre-started server from a pool instead of starting a new server for each test. The pool keeps servers
+     * with the same configuration (except for the resources, which are deployed into the leased server) started in the
+     * background, so acquiring a server takes constant time when tests run in parallel. Servers return to the pool when
+     * the test is done. Pooled servers must use an automatically selected port.
+     * @param poolSize number of started servers kept by the pool
+     * @return a new JaxRsServer
+     */
+    public JaxRsServer pooled(int poolSize) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("Pool size must be positive: " + poolSize);
+        }
+
+        JaxRsServer newServer = copy();
+        newServer.poolSize = poolSize;
+        return newServer.checkModes();
+    }
+
+    /**
+     * Lease a pre-started server from a pool keeping a server per available processor.
+     * @return a new JaxRsServer
+     * @see #pooled(int)
+     */
+    public JaxRsServer pooled() {
+        return pooled(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Starts the servers of a pooled server's pool in the background so even the first test leases an already started
+     * server. The pool is warmed anyway by the first lease. Pools are shared by all the servers with the same
+     * configuration, so the warm-up can start when the test class is initialized using a static initializer:
+     * <pre>{@code
+     * static {
+     *     JaxRsServer.forResources(ExampleResource.class).pooled(4).warmUp();
+     * }
+     * }</pre>
+     * Calling it on the server of a <code>@Rule</code> field starts the warm-up only when the first test instance is
+     * created, just before the first lease.
+     * @return this JaxRsServer
+     */
+    public JaxRsServer warmUp() {
+        if (poolSize == 0) {
+            throw new JaxRsException("Only pooled servers can be warmed up");
+        }
+
+        ServerPool.forConfig(this).warmUp();
+        return this;
+    }
+
     /**
      * Gets the automatically-selected or manually-set TCP port used by the server.
      * @return selected TCP port
@@ -92,7 +395,7 @@ public class JaxRsServer implements MethodRule {
      * @return REST request builder
      */
     public RestRequest jsonRequest(String uri) {
-        return new RestRequest(uri, port).accept(MediaType.APPLICATION_JSON_TYPE);
+        return newRequest(uri).accept(MediaType.APPLICATION_JSON_TYPE);
     }
 
     /**
@@ -101,12 +404,71 @@ public class JaxRsServer implements MethodRule {
      * @return REST request builder
      */
     public RestRequest formRequest(String uri) {
-        return new RestRequest(uri, port).accept(MediaType.APPLICATION_FORM_URLENCODED_TYPE);
+        return newRequest(uri).accept(MediaType.APPLICATION_FORM_URLENCODED_TYPE);
+    }
+
+    /**
+     * Creates a load generator sending a request repeatedly to the server (which must be running), e.g.:
+     * <pre>{@code
+     * LoadResult result = jaxRsServer.load(jaxRsServer.jsonRequest("/example/data/1")).concurrency(64).duration(10, TimeUnit.SECONDS).get();
+     * }</pre>
+     * @param template the request to send
+     * @return the load generator
+     */
+    public LoadGenerator load(RestRequest template) {
+        if (server == null) {
+            throw new JaxRsException("The server must be running in order to generate load");
+        }
+
+        // The in-memory client isn't limited by a connection pool - other servers get a connection per load worker
+        return new LoadGenerator(template, inMemory ? server.client : null);
+    }
+
+    private RestRequest newRequest(String uri) {
+        return server != null ? new RestRequest(uri, port, server.client) : new RestRequest(uri, port);
     }
 
     @Override
     public Statement apply(Statement base, FrameworkMethod method, Object target) {
-        return new JaxRsServerStatement(expectedClientResponseFailure.apply(base, method, target));
+        ExpectedClientResponseFailure expectedFailure = ExpectedClientResponseFailure.none();
+        Statement next = expectedFailure.apply(base, method, target);
+
+        if (jvmScoped || classScoped) {
+            return new SharedJaxRsServerStatement(next, expectedFailure);
+        }
+
+        expectedClientResponseFailure = expectedFailure;
+        return new JaxRsServerStatement(next);
+    }
+
+    @Override
+    public Statement apply(final Statement base, Description description) {
+        // JUnit applies rules which are both MethodRule and TestRule only as TestRule - also for test methods
+        if (description.isTest()) {
+            return apply(base, null, null);
+        }
+
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                if (jvmScoped) {
+                    startJvmScopedServer();
+                    base.evaluate();
+                    return;
+                }
+
+                // Resources are registered by each test, so they're injected with the test's mocks and EJBs
+                startServer();
+                classScoped = true;
+                try {
+                    base.evaluate();
+
+                } finally {
+                    classScoped = false;
+                    shutdownJaxRsServer();
+                }
+            }
+        };
     }
 
     /**
@@ -119,67 +481,75 @@ public class JaxRsServer implements MethodRule {
     }
 
     public void startJaxRsServer() {
-        jaxRsServer = new CustomUndertowJaxrsServer();
-        Undertow.Builder builder = Undertow.builder().addHttpListener(requestedPort, "localhost");
-        jaxRsServer.start(builder);
-        port = jaxRsServer.getJaxrsPort();
-
-        ResteasyDeployment deployment = new ResteasyDeployment();
-        DeploymentInfo deploymentInfo = jaxRsServer.undertowDeployment(deployment);
-        deploymentInfo.setClassLoader(getClass().getClassLoader());
-        deploymentInfo.setDeploymentName("testfun");
-        deploymentInfo.setContextPath("/");
-        deploymentInfo.setLoginConfig(new LoginConfig(HttpServletRequest.BASIC_AUTH, "Login Required"));
-        deploymentInfo.addSecurityConstraint(new SecurityConstraint().setEmptyRoleSemantic(SecurityInfo.EmptyRoleSemantic.AUTHENTICATE));
-        deploymentInfo.setIdentityManager(new IdentityManager() {
-            @Override
-            public Account verify(Account account) {
-                return account;
-            }
+        startServer();
+        server.registerResources(resourceClasses);
+    }
 
-            @Override
-            public Account verify(String id, Credential credential) {
-                return new Account() {
-                    @Override
-                    public Principal getPrincipal() {
-                        return new SimplePrincipal(id);
-                    }
+    private void startServer() {
+        if (poolSize > 0) {
+            server = ServerPool.forConfig(this).lease();
+            server.injectionContext = InjectionContext.current();
+        } else {
+            server = new ServerInstance(this);
+        }
+        port = server.port;
+    }
 
-                    @Override
-                    public Set<String> getRoles() {
-                        return null;
-                    }
-                };
+    public void shutdownJaxRsServer() {
+        if (poolSize > 0) {
+            server.unregisterResources(resourceClasses);
+            ServerPool.forConfig(this).release(server);
+        } else {
+            server.stop();
+        }
+    }
 
-            }
+    private Class[] getDeployedProviderClasses() {
+        if (!serverMetrics) {
+            return providerClasses;
+        }
 
-            @Override
-            public Account verify(Credential credential) {
-                return verify("unknown", credential);
-            }
-        });
-        jaxRsServer.deploy(deploymentInfo);
+        List<Class> deployed = new ArrayList<>();
+        if (providerClasses != null) {
+            deployed.addAll(Arrays.asList(providerClasses));
+        }
+        deployed.add(ServerMetricsFilter.class);
+        return deployed.toArray(new Class[deployed.size()]);
+    }
 
-        for (Class aClass : resourceClasses) {
-            Object resourceInstance;
-            try {
-                resourceInstance = aClass.newInstance();
-            } catch (Exception e1) {
-                throw new IllegalArgumentException(e1);
+    /**
+     * @return a key identifying servers that can be shared, regardless of their resources
+     */
+    private String getConfigurationKey() {
+        return (inMemory ? "in-memory" : requestedPort) + (lean ? "lean" : "") + Arrays.toString(providerClasses) +
+                Arrays.asList(ioThreads, workerThreads, bufferSize, directBuffers, serverOptions, virtualThreads, serverMetrics);
+    }
+
+    private void startJvmScopedServer() {
+        String key = getConfigurationKey() + Arrays.toString(resourceClasses);
+
+        synchronized (JVM_SERVERS) {
+            if (JVM_SERVERS.isEmpty()) {
+                Runtime.getRuntime().addShutdownHook(new Thread("testfun-jaxrs-shutdown") {
+                    @Override
+                    public void run() {
+                        synchronized (JVM_SERVERS) {
+                            for (ServerInstance jvmServer : JVM_SERVERS.values()) {
+                                jvmServer.stop();
+                            }
+                        }
+                    }
+                });
             }
-            DependencyInjector.getInstance().injectDependencies(resourceInstance);
-            deployment.getRegistry().addSingletonResource(resourceInstance);
-        }
 
-        if (providerClasses != null) {
-            for (Class providerClass: providerClasses) {
-                deployment.getProviderFactory().registerProvider(providerClass);
+            server = JVM_SERVERS.get(key);
+            if (server == null) {
+                server = new ServerInstance(this);
+                JVM_SERVERS.put(key, server);
             }
         }
-    }
 
-    public void shutdownJaxRsServer() {
-        jaxRsServer.stop();
+        port = server.port;
     }
 
     private class JaxRsServerStatement extends Statement {
@@ -203,6 +573,346 @@ public class JaxRsServer implements MethodRule {
         }
     }
 
+    /**
+     * Runs a test using a server that keeps running after the test - only the resources are re-registered.
+     */
+    private class SharedJaxRsServerStatement extends Statement {
+
+        private final Statement next;
+
+        private final ExpectedClientResponseFailure expectedFailure;
+
+        private SharedJaxRsServerStatement(Statement next, ExpectedClientResponseFailure expectedFailure) {
+            this.next = next;
+            this.expectedFailure = expectedFailure;
+        }
+
+        @Override
+        public void evaluate() throws Throwable {
+            if (jvmScoped) {
+                startJvmScopedServer();
+            }
+
+            ServerInstance sharedServer = server;
+            sharedServer.lock.lock();
+            try {
+                expectedClientResponseFailure = expectedFailure;
+                sharedServer.injectionContext = InjectionContext.current();
+                sharedServer.registerResources(resourceClasses);
+
+                next.evaluate();
+
+            } finally {
+                // Requests arriving between tests mustn't be bound to the finished (closed) test's context
+                sharedServer.injectionContext = InjectionContext.getDefault();
+                sharedServer.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Pre-started servers with the same configuration, leased by tests and returned when the tests are done. Servers
+     * are started in the background so the pool is full again by the time the next test leases a server.
+     */
+    private static class ServerPool {
+
+        private static final Map<String, ServerPool> POOLS = new HashMap<>();
+
+        private static final ExecutorService STARTER = Executors.newCachedThreadPool(new DaemonThreadFactory("testfun-jaxrs-pool-"));
+
+        private final JaxRsServer config;
+
+        // Recently returned servers are leased first, servers started in the background are added at the end
+        private final BlockingDeque<ServerInstance> idle = new LinkedBlockingDeque<>();
+
+        private final AtomicInteger starting = new AtomicInteger();
+
+        private static ServerPool forConfig(JaxRsServer config) {
+            synchronized (POOLS) {
+                if (POOLS.isEmpty()) {
+                    Runtime.getRuntime().addShutdownHook(new Thread("testfun-jaxrs-pool-shutdown") {
+                        @Override
+                        public void run() {
+                            synchronized (POOLS) {
+                                for (ServerPool pool : POOLS.values()) {
+                                    for (ServerInstance idleServer : pool.idle) {
+                                        idleServer.stop();
+                                    }
+                                }
+                            }
+                        }
+                    });
+                }
+
+                String key = config.getConfigurationKey() + config.poolSize;
+                ServerPool pool = POOLS.get(key);
+                if (pool == null) {
+                    pool = new ServerPool(config);
+                    POOLS.put(key, pool);
+                }
+                return pool;
+            }
+        }
+
+        private ServerPool(JaxRsServer config) {
+            this.config = config;
+        }
+
+        /**
+         * Starts servers in the background until the pool has its configured size.
+         */
+        private void warmUp() {
+            while (idle.size() + starting.get() < config.poolSize) {
+                starting.incrementAndGet();
+                STARTER.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            idle.offerLast(new ServerInstance(config));
+                        } catch (RuntimeException e) {
+                            // The next lease starts a server on the test's thread, failing the test if it fails again
+                            LOGGER.warn("Failed starting pooled JAX-RS server", e);
+                        } finally {
+                            starting.decrementAndGet();
+                        }
+                    }
+                });
+            }
+        }
+
+        private ServerInstance lease() {
+            ServerInstance leased = idle.pollFirst();
+            if (leased == null) {
+                leased = new ServerInstance(config);
+            }
+
+            warmUp();
+            return leased;
+        }
+
+        private void release(ServerInstance released) {
+            // Idle servers mustn't keep the finished test's context (and its entity manager and database) reachable
+            released.injectionContext = InjectionContext.getDefault();
+            idle.offerFirst(released);
+
+            // Keep the recently used servers, which are warmer than those started in the background
+            while (idle.size() > config.poolSize) {
+                ServerInstance extra = idle.pollLast();
+                if (extra != null) {
+                    extra.stop();
+                }
+            }
+        }
+    }
+
+    /**
+     * A running RESTEasy deployment - either deployed in an Undertow server or accessed in-memory.
+     */
+    private static class ServerInstance {
+
+        private final ResteasyDeployment deployment = new ResteasyDeployment();
+
+        private CustomUndertowJaxrsServer jaxRsServer;
+
+        // Set instead of jaxRsServer when RESTEasy is mounted without a servlet container
+        private Undertow leanServer;
+
+        // The client used by all the requests sent to the server - closed when the server stops
+        private final RestClient client;
+
+        private int port;
+
+        // Serializes the tests using a shared server
+        private final ReentrantLock lock = new ReentrantLock();
+
+        // The injection context bound to the server threads handling requests
+        private volatile InjectionContext injectionContext = InjectionContext.current();
+
+        // Invokes the resources instead of the worker threads when virtual threads are requested
+        private ExecutorService dispatchExecutor;
+
+        private ServerInstance(JaxRsServer config) {
+            // Reuse the provider factory built by earlier servers using the same providers
+            deployment.setProviderFactory(DeploymentCache.getInstance().getProviderFactory(config.getDeployedProviderClasses()));
+            deployment.setRegisterBuiltin(false);
+
+            if (config.inMemory) {
+                deployment.start();
+                client = RestClient.withEngine(new InMemoryClientEngine(deployment.getDispatcher(), URI.create("http://localhost/")));
+            } else if (config.lean) {
+                deployLean(config);
+                client = RestClient.pooled(config.clientPoolSize);
+            } else {
+                deploy(config);
+                client = RestClient.pooled(config.clientPoolSize);
+            }
+        }
+
+        private void deploy(JaxRsServer config) {
+            // Start the deployment up front so the RESTEasy servlet uses its (cached) provider factory instead of bootstrapping its own
+            deployment.start();
+
+            jaxRsServer = new CustomUndertowJaxrsServer();
+            jaxRsServer.start(createUndertowBuilder(config));
+            port = jaxRsServer.getJaxrsPort();
+
+            DeploymentInfo deploymentInfo = jaxRsServer.undertowDeployment(deployment);
+            deploymentInfo.setClassLoader(getClass().getClassLoader());
+            deploymentInfo.setDeploymentName("testfun");
+            if (config.virtualThreads) {
+                dispatchExecutor = VirtualThreads.newThreadPerTaskExecutor("testfun-jaxrs-dispatch-");
+                deploymentInfo.setExecutor(dispatchExecutor);
+            }
+            deploymentInfo.setContextPath("/");
+            deploymentInfo.setLoginConfig(new LoginConfig(HttpServletRequest.BASIC_AUTH, "Login Required"));
+            deploymentInfo.addSecurityConstraint(new SecurityConstraint().setEmptyRoleSemantic(SecurityInfo.EmptyRoleSemantic.AUTHENTICATE));
+            deploymentInfo.setIdentityManager(new IdentityManager() {
+                @Override
+                public Account verify(Account account) {
+                    return account;
+                }
+
+                @Override
+                public Account verify(String id, Credential credential) {
+                    return new Account() {
+                        @Override
+                        public Principal getPrincipal() {
+                            return new SimplePrincipal(id);
+                        }
+
+                        @Override
+                        public Set<String> getRoles() {
+                            return null;
+                        }
+                    };
+
+                }
+
+                @Override
+                public Account verify(Credential credential) {
+                    return verify("unknown", credential);
+                }
+            });
+
+            // Requests are handled on server threads - bind them to the injection context of the test using the server
+            deploymentInfo.addThreadSetupAction(new ThreadSetupAction() {
+                @Override
+                public Handle setup(HttpServerExchange exchange) {
+                    final InjectionContext context = injectionContext;
+                    final InjectionContext previous = context.bind();
+                    final StatementRecorder previousRecorder = StatementRecorder.current();
+                    return new Handle() {
+                        @Override
+                        public void tearDown() {
+                            StatementRecorder.restore(previousRecorder);
+                            context.unbind(previous);
+                        }
+                    };
+                }
+            });
+
+            jaxRsServer.deploy(deploymentInfo);
+        }
+
+        @SuppressWarnings("unchecked")
+        private Undertow.Builder createUndertowBuilder(JaxRsServer config) {
+            Undertow.Builder builder = Undertow.builder().addHttpListener(config.requestedPort, "localhost");
+            if (config.ioThreads > 0) {
+                builder.setIoThreads(config.ioThreads);
+            }
+            if (config.workerThreads > 0) {
+                builder.setWorkerThreads(config.workerThreads);
+            }
+            if (config.bufferSize > 0) {
+                builder.setBufferSize(config.bufferSize);
+            }
+            if (config.directBuffers != null) {
+                builder.setDirectBuffers(config.directBuffers);
+            }
+            for (Map.Entry<Option<?>, Object> option : config.serverOptions.entrySet()) {
+                builder.setServerOption((Option<Object>) option.getKey(), option.getValue());
+            }
+            return builder;
+        }
+
+        private void deployLean(JaxRsServer config) {
+            deployment.start();
+            if (config.virtualThreads) {
+                dispatchExecutor = VirtualThreads.newThreadPerTaskExecutor("testfun-jaxrs-dispatch-");
+            }
+
+            final HttpHandler dispatcherHandler = new DispatcherHttpHandler(deployment.getDispatcher());
+            leanServer = createUndertowBuilder(config).setHandler(new HttpHandler() {
+                @Override
+                public void handleRequest(HttpServerExchange exchange) throws Exception {
+                    // RESTEasy blocks - move off the IO thread first
+                    if (exchange.isInIoThread()) {
+                        if (dispatchExecutor != null) {
+                            exchange.dispatch(dispatchExecutor, this);
+                        } else {
+                            exchange.dispatch(this);
+                        }
+                        return;
+                    }
+
+                    // Bind the thread to the injection context of the test using the server
+                    InjectionContext context = injectionContext;
+                    InjectionContext previous = context.bind();
+                    StatementRecorder previousRecorder = StatementRecorder.current();
+                    try {
+                        dispatcherHandler.handleRequest(exchange);
+                    } finally {
+                        StatementRecorder.restore(previousRecorder);
+                        context.unbind(previous);
+                    }
+                }
+            }).build();
+            leanServer.start();
+            port = getListenerPort(leanServer);
+        }
+
+        /**
+         * Replaces the singleton resources with new instances injected with the dependencies of the current test.
+         */
+        private void registerResources(Class[] resourceClasses) {
+            for (Class aClass : resourceClasses) {
+                Object resourceInstance;
+                try {
+                    resourceInstance = aClass.newInstance();
+                } catch (Exception e1) {
+                    throw new IllegalArgumentException(e1);
+                }
+                DependencyInjector.getInstance().injectDependencies(resourceInstance);
+                deployment.getRegistry().removeRegistrations(aClass);
+                deployment.getRegistry().addSingletonResource(resourceInstance, DeploymentCache.getInstance().getResourceClass(aClass));
+            }
+        }
+
+        /**
+         * Removes the resources of a test from a pooled server before it's leased by another test.
+         */
+        private void unregisterResources(Class[] resourceClasses) {
+            for (Class aClass : resourceClasses) {
+                deployment.getRegistry().removeRegistrations(aClass);
+            }
+        }
+
+        private void stop() {
+            client.close();
+
+            if (jaxRsServer != null) {
+                jaxRsServer.stop();
+            } else if (leanServer != null) {
+                leanServer.stop();
+            }
+            deployment.stop();
+
+            if (dispatchExecutor != null) {
+                dispatchExecutor.shutdown();
+            }
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private <T, S> S getFromPrivateField(T obj, String fieldName) {
         // Locate the field in through all the super classes
@@ -239,16 +949,19 @@ public class JaxRsServer implements MethodRule {
         }
     }
 
-    private class CustomUndertowJaxrsServer extends UndertowJaxrsServer {
-        public int getJaxrsPort() {
-            try {
-                Field channelsField = server.getClass().getDeclaredField("channels");
-                List<AcceptingChannel<? extends StreamConnection>> channels = InjectionUtils.readObjectFromField(server, channelsField);
-                return ((InetSocketAddress)channels.get(0).getLocalAddress()).getPort();
-            } catch (NoSuchFieldException e) {
-                throw new JaxRsException("Failed getting listener port", e);
-            }
+    private static int getListenerPort(Undertow server) {
+        try {
+            Field channelsField = server.getClass().getDeclaredField("channels");
+            List<AcceptingChannel<? extends StreamConnection>> channels = InjectionUtils.readObjectFromField(server, channelsField);
+            return ((InetSocketAddress)channels.get(0).getLocalAddress()).getPort();
+        } catch (NoSuchFieldException e) {
+            throw new JaxRsException("Failed getting listener port", e);
+        }
+    }
 
+    private static class CustomUndertowJaxrsServer extends UndertowJaxrsServer {
+        public int getJaxrsPort() {
+            return getListenerPort(server);
         }
     }
 }
@@ -0,0 +1,35 @@
+package org.testfun.jee;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Limits the number of JDBC statements a test may execute - enforced by the {@link QueryMonitor} rule, which must be
+ * declared by the test class. Annotating a test class limits each of its tests, annotating a test method overrides the
+ * limit of its class.
+ * <pre>{@code
+ * @Test
+ * @MaxQueries(2)
+ * public void saveAndLoad() {...}
+ * }</pre>
+ */
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface MaxQueries {
+
+    /**
+     * @return the maximal number of statements the test may execute
+     */
+    int value() default Integer.MAX_VALUE;
+
+    /**
+     * @return the number of times a query with the same shape (see {@link org.testfun.jee.runner.ExecutedStatement#getShape()})
+     * may be executed by the test, or a negative value in order to use the limit of the {@link QueryMonitor} rule
+     */
+    int maxRepeats() default -1;
+
+}
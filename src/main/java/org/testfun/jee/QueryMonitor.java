@@ -0,0 +1,220 @@
+package org.testfun.jee;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.rules.MethodRule;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.Statement;
+import org.testfun.jee.runner.ExecutedStatement;
+import org.testfun.jee.runner.QueryPlan;
+import org.testfun.jee.runner.SingletonDataSource;
+import org.testfun.jee.runner.StatementRecorder;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A JUnit rule recording the JDBC statements executed by each test - by the test itself and by the server threads
+ * handling the requests it sends - and failing tests that execute too many statements (see {@link MaxQueries}) or
+ * execute the same query over and over again (an N+1 select problem, typically an ORM loading a lazy association
+ * separately for each entity of a list).
+ * <p>
+ * To use this rule, add the following member variable to your test class:
+ * <pre>{@code @Rule public QueryMonitor queryMonitor = QueryMonitor.detectNPlusOne(5);}</pre>
+ * The statements recorded so far by the current test are available using {@link #getStatements()}.
+ * <p>
+ * Queries that are fast on the small data sets of tests may be slow at production data volumes - use
+ * {@link #explainQueries(String...)} in order to explain each distinct query executed by the test (using HSQLDB's
+ * <code>EXPLAIN PLAN FOR</code>) and report the queries reading large tables using a full table scan rather than an
+ * index, e.g.
+ * <pre>{@code @Rule public QueryMonitor queryMonitor = QueryMonitor.none().explainQueries("ORDERS", "CUSTOMERS").failOnFullScans();}</pre>
+ */
+public class QueryMonitor implements MethodRule {
+
+    private static final Logger LOGGER = LogManager.getLogger(QueryMonitor.class);
+
+    private final int maxRepeats;
+
+    private Set<String> largeTables;
+
+    private boolean failOnFullScans;
+
+    private volatile StatementRecorder recorder;
+
+    /**
+     * @return a rule enforcing only the {@link MaxQueries} annotations of the tests
+     */
+    public static QueryMonitor none() {
+        return new QueryMonitor(-1);
+    }
+
+    /**
+     * @param maxRepeats the number of times a query with the same shape may be executed by a test (unless overridden by
+     *                   its {@link MaxQueries} annotation)
+     * @return a rule failing tests that execute the same query more than <code>maxRepeats</code> times
+     */
+    public static QueryMonitor detectNPlusOne(int maxRepeats) {
+        return new QueryMonitor(maxRepeats);
+    }
+
+    private QueryMonitor(int maxRepeats) {
+        this.maxRepeats = maxRepeats;
+    }
+
+    /**
+     * Explains the distinct queries executed by each test once it passes and logs a report of their plans, flagging the
+     * queries that read one of the given tables using a full table scan.
+     * @param largeTables names of the tables expected to be large in production (case insensitive) - when none is
+     *                    given, a full scan of any table is flagged
+     * @return this rule
+     */
+    public QueryMonitor explainQueries(String... largeTables) {
+        this.largeTables = new LinkedHashSet<>(Arrays.asList(largeTables));
+        return this;
+    }
+
+    /**
+     * Fails tests executing queries flagged by {@link #explainQueries(String...)} rather than only reporting them.
+     * @return this rule
+     */
+    public QueryMonitor failOnFullScans() {
+        this.failOnFullScans = true;
+        return this;
+    }
+
+    @Override
+    public Statement apply(final Statement base, final FrameworkMethod method, Object target) {
+        MaxQueries maxQueries = method.getAnnotation(MaxQueries.class);
+        if (maxQueries == null) {
+            maxQueries = target.getClass().getAnnotation(MaxQueries.class);
+        }
+
+        final int maxCount = maxQueries != null ? maxQueries.value() : Integer.MAX_VALUE;
+        final int maxRepeatsOfTest = maxQueries != null && maxQueries.maxRepeats() >= 0 ? maxQueries.maxRepeats() : maxRepeats;
+
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                recorder = StatementRecorder.startForContext();
+                try {
+                    base.evaluate();
+                } finally {
+                    recorder.stop();
+                }
+
+                assertQueries(recorder, maxCount, maxRepeatsOfTest);
+
+                if (largeTables != null) {
+                    explain(method);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return the statements executed so far by the current test
+     */
+    public List<ExecutedStatement> getStatements() {
+        if (recorder == null) {
+            throw new IllegalStateException("No test is running");
+        }
+        return recorder.getStatements();
+    }
+
+    /**
+     * Explains the distinct queries executed so far by the current test.
+     * @return the plans of the queries, in the order they were first executed
+     */
+    public List<QueryPlan> getQueryPlans() {
+        Set<String> queries = new LinkedHashSet<>();
+        for (ExecutedStatement statement : getStatements()) {
+            if (statement.isQuery()) {
+                queries.add(statement.getSql());
+            }
+        }
+
+        List<QueryPlan> plans = new ArrayList<>();
+        try {
+            // The unwrapped connection isn't instrumented, so explaining doesn't count towards the test's statements
+            Connection connection = SingletonDataSource.getDataSource().getConnection().unwrap(Connection.class);
+            for (String query : queries) {
+                plans.add(QueryPlan.explain(connection, query));
+            }
+        } catch (SQLException e) {
+            throw new AssertionError("Failed explaining the queries of the test (only HSQLDB is supported)", e);
+        }
+        return plans;
+    }
+
+    private void explain(FrameworkMethod method) {
+        List<QueryPlan> flagged = new ArrayList<>();
+        StringBuilder report = new StringBuilder("Query plans of " + method.getDeclaringClass().getSimpleName() + "." + method.getName() + ":");
+        for (QueryPlan plan : getQueryPlans()) {
+            boolean fullScanOfLargeTable = isFullScanOfLargeTable(plan);
+            if (fullScanOfLargeTable) {
+                flagged.add(plan);
+            }
+            report.append("\n    ").append(fullScanOfLargeTable ? "FULL SCAN " : "").append(plan);
+        }
+
+        if (flagged.isEmpty()) {
+            LOGGER.info(report);
+            return;
+        }
+
+        LOGGER.warn(report);
+        if (failOnFullScans) {
+            StringBuilder message = new StringBuilder("Queries read large tables using a full table scan:");
+            for (QueryPlan plan : flagged) {
+                message.append("\n    ").append(plan);
+            }
+            throw new AssertionError(message.toString());
+        }
+    }
+
+    private boolean isFullScanOfLargeTable(QueryPlan plan) {
+        if (largeTables.isEmpty()) {
+            return !plan.getFullScans().isEmpty();
+        }
+
+        for (String table : largeTables) {
+            if (plan.isFullScanOf(table)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void assertQueries(StatementRecorder recorder, int maxCount, int maxRepeats) {
+        List<ExecutedStatement> statements = recorder.getStatements();
+        if (statements.size() > maxCount) {
+            throw new AssertionError("Expected at most " + maxCount + " JDBC statements but " + statements.size() + " were executed:" + toString(statements));
+        }
+
+        if (maxRepeats >= 0) {
+            Map<String, Integer> repeated = recorder.getRepeatedQueries(maxRepeats);
+            if (!repeated.isEmpty()) {
+                StringBuilder message = new StringBuilder("Possible N+1 select - queries were executed more than " + maxRepeats + " times:");
+                for (Map.Entry<String, Integer> entry : repeated.entrySet()) {
+                    message.append("\n    ").append(entry.getValue()).append(" x ").append(entry.getKey());
+                }
+                throw new AssertionError(message.toString());
+            }
+        }
+    }
+
+    private static String toString(List<ExecutedStatement> statements) {
+        StringBuilder string = new StringBuilder();
+        for (ExecutedStatement statement : statements) {
+            string.append("\n    ").append(statement);
+        }
+        return string.toString();
+    }
+
+}
@@ -0,0 +1,209 @@
+package org.testfun.jee;
+
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.PostInsertIdentifierGenerator;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.persister.entity.SingleTableEntityPersister;
+import org.hibernate.type.Type;
+import org.testfun.jee.runner.EjbWithMockitoRunnerException;
+import org.testfun.jee.runner.SingletonDataSource;
+import org.testfun.jee.runner.SingletonEntityManager;
+
+import javax.persistence.EntityManager;
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Loads large amounts of test data much faster than persisting entities through the entity manager one by one. The
+ * entities are mapped to INSERT statements using Hibernate's metadata and inserted using JDBC batches over the test's
+ * connection, within the test's transaction - so the rows are rolled back with the rest of the test's changes.
+ * <pre>{@code
+ * TestData.bulk(SomeEntity.class, 500_000, i -> new SomeEntity(0, "name " + i, "address " + i));
+ * }</pre>
+ * Generated identifiers (other than identity columns) are assigned to the entities like when persisting them. However,
+ * the entities are not managed by the entity manager and no entity callbacks or bean validation are triggered.
+ * Collections aren't inserted - associated entities should be bulk loaded separately, referencing their owner using a
+ * many-to-one association.
+ */
+public class TestData {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private TestData() {
+    }
+
+    /**
+     * Inserts entities created by a generator.
+     * @param entityClass the class of the entities (mapped to a single table)
+     * @param count the number of entities to insert
+     * @param generator creates the entity of each index between 0 and <code>count - 1</code>
+     * @param <T> the type of the entities
+     * @return the number of inserted rows
+     */
+    public static <T> int bulk(Class<T> entityClass, int count, IntFunction<? extends T> generator) {
+        EntityManager entityManager = SingletonEntityManager.getInstance();
+
+        // Entities persisted earlier in the test are written first, e.g. so the bulk loaded entities can reference them
+        if (entityManager.getTransaction().isActive()) {
+            entityManager.flush();
+        }
+
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        EntityInsert insert = new EntityInsert(session, session.getFactory().getMetamodel().entityPersister(entityClass));
+
+        try {
+            Connection connection = SingletonDataSource.getDataSource().getConnection();
+            try (PreparedStatement statement = connection.prepareStatement(insert.getSql())) {
+                int rows = 0;
+                for (int i = 0; i < count; ++i) {
+                    insert.bind(statement, generator.apply(i));
+                    statement.addBatch();
+
+                    if ((i + 1) % BATCH_SIZE == 0) {
+                        rows += sum(statement.executeBatch());
+                    }
+                }
+
+                if (count % BATCH_SIZE != 0) {
+                    rows += sum(statement.executeBatch());
+                }
+                return rows;
+            }
+
+        } catch (SQLException e) {
+            throw new EjbWithMockitoRunnerException("Failed bulk loading " + entityClass.getSimpleName() + " entities", e);
+        }
+    }
+
+    private static int sum(int[] counts) {
+        int sum = 0;
+        for (int count : counts) {
+            // Drivers may report that a batched statement succeeded without reporting its update count
+            sum += count == PreparedStatement.SUCCESS_NO_INFO ? 1 : Math.max(0, count);
+        }
+        return sum;
+    }
+
+    /**
+     * The INSERT statement of an entity and the binding of its values - the identifier (unless generated by an identity
+     * column), the insertable properties and the discriminator of entities in a single-table hierarchy.
+     */
+    private static class EntityInsert {
+
+        private final SessionImplementor session;
+
+        private final SingleTableEntityPersister persister;
+
+        private final boolean insertId;
+
+        private final List<Integer> properties = new ArrayList<>();
+
+        private final String sql;
+
+        private EntityInsert(SessionImplementor session, EntityPersister persister) {
+            if (!(persister instanceof SingleTableEntityPersister)) {
+                throw new EjbWithMockitoRunnerException("Bulk loading supports only entities mapped to a single table: " + persister.getEntityName());
+            }
+
+            this.session = session;
+            this.persister = (SingleTableEntityPersister) persister;
+            this.insertId = !(persister.getIdentifierGenerator() instanceof PostInsertIdentifierGenerator);
+
+            List<String> columns = new ArrayList<>();
+            List<String> values = new ArrayList<>();
+            if (insertId) {
+                addColumns(this.persister.getIdentifierColumnNames(), columns, values);
+            }
+
+            String[] propertyNames = persister.getPropertyNames();
+            boolean[] insertability = persister.getPropertyInsertability();
+            for (int i = 0; i < propertyNames.length; ++i) {
+                String[] propertyColumns = this.persister.getPropertyColumnNames(i);
+                if (!insertability[i] || propertyColumns.length == 0 || isFormula(propertyColumns)) {
+                    continue;
+                }
+
+                if (this.persister.getSubclassPropertyTableNumber(propertyNames[i]) != 0) {
+                    throw new EjbWithMockitoRunnerException("Bulk loading doesn't support secondary tables: " + persister.getEntityName() + "." + propertyNames[i]);
+                }
+
+                properties.add(i);
+                addColumns(propertyColumns, columns, values);
+            }
+
+            if ((this.persister.isInherited() || this.persister.hasSubclasses()) && this.persister.getDiscriminatorColumnName() != null) {
+                columns.add(this.persister.getDiscriminatorColumnName());
+                values.add(this.persister.getDiscriminatorSQLValue());
+            }
+
+            sql = "insert into " + this.persister.getTableName() + " (" + join(columns) + ") values (" + join(values) + ")";
+        }
+
+        private String getSql() {
+            return sql;
+        }
+
+        private void bind(PreparedStatement statement, Object entity) throws SQLException {
+            if (!persister.getMappedClass().isInstance(entity)) {
+                throw new EjbWithMockitoRunnerException("Expected an instance of " + persister.getEntityName() + " but got: " + entity);
+            }
+
+            int index = 1;
+            if (insertId) {
+                Serializable id = persister.getIdentifier(entity, session);
+                if (id == null || persister.getEntityMetamodel().getIdentifierProperty().getUnsavedValue().isUnsaved(id)) {
+                    IdentifierGenerator generator = persister.getIdentifierGenerator();
+                    id = generator.generate(session, entity);
+                    persister.setIdentifier(entity, id, session);
+                }
+
+                persister.getIdentifierType().nullSafeSet(statement, id, index, session);
+                index += persister.getIdentifierType().getColumnSpan(session.getFactory());
+            }
+
+            Object[] values = persister.getPropertyValues(entity);
+            if (persister.isVersioned() && values[persister.getVersionProperty()] == null) {
+                Object version = persister.getVersionType().seed(session);
+                values[persister.getVersionProperty()] = version;
+                persister.setPropertyValue(entity, persister.getVersionProperty(), version);
+            }
+
+            Type[] types = persister.getPropertyTypes();
+            for (int property : properties) {
+                types[property].nullSafeSet(statement, values[property], index, session);
+                index += types[property].getColumnSpan(session.getFactory());
+            }
+        }
+
+        private static boolean isFormula(String[] columns) {
+            for (String column : columns) {
+                if (column == null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static void addColumns(String[] names, List<String> columns, List<String> values) {
+            for (String name : names) {
+                columns.add(name);
+                values.add("?");
+            }
+        }
+
+        private static String join(List<String> strings) {
+            StringBuilder joined = new StringBuilder();
+            for (String string : strings) {
+                joined.append(joined.length() > 0 ? ", " : "").append(string);
+            }
+            return joined.toString();
+        }
+    }
+
+}
@@ -0,0 +1,81 @@
+package org.testfun.jee.runner;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testfun.jee.runner.inject.TransactionUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+
+/**
+ * The data set of a test class (see {@link org.testfun.jee.DataSet}) - loaded into the transaction of the first test,
+ * followed by a JDBC savepoint every later test rolls back to instead of reloading the data.
+ */
+public class DataSetFixture {
+
+    private static final Logger LOGGER = LogManager.getLogger(DataSetFixture.class);
+
+    private final Class<?> testClass;
+
+    private final String[] resources;
+
+    private Savepoint savepoint;
+
+    public DataSetFixture(Class<?> testClass, String... resources) {
+        this.testClass = testClass;
+        this.resources = resources;
+    }
+
+    /**
+     * Starts the transaction of a test with the data set loaded - by rolling back to the savepoint set after the data
+     * set was loaded, or (for the first test, when the test's transaction was already ended, or when each test has its
+     * own database) by starting a new transaction and loading the data set.
+     */
+    public synchronized void beginTest() {
+        EntityManager entityManager = SingletonEntityManager.getInstance();
+        EntityTransaction tx = entityManager.getTransaction();
+
+        try {
+            Connection connection = SingletonDataSource.getDataSource().getConnection();
+            if (savepoint != null && tx.isActive() && !tx.getRollbackOnly()) {
+                try {
+                    // Entities loaded by the previous test may have been changed or removed by the rollback
+                    entityManager.clear();
+                    connection.rollback(savepoint);
+
+                    // Rolling back to a savepoint may release it (e.g. in HSQLDB)
+                    savepoint = connection.setSavepoint();
+                    return;
+
+                } catch (SQLException e) {
+                    LOGGER.debug("The data set savepoint was released - reloading the data set", e);
+                }
+            }
+
+            TransactionUtils.rollbackTransaction();
+            TransactionUtils.endTransaction(true);
+            TransactionUtils.beginTransaction();
+
+            DataSetLoader.load(connection, testClass, resources);
+            savepoint = Boolean.getBoolean("org.testfun.jee.parallel") ? null : connection.setSavepoint();
+
+        } catch (SQLException e) {
+            throw new EjbWithMockitoRunnerException("Failed preparing the data set of " + testClass.getName(), e);
+        }
+    }
+
+    /**
+     * Rolls back the transaction holding the data set, once all the tests of the class are done.
+     */
+    public synchronized void release() {
+        if (savepoint != null) {
+            savepoint = null;
+            TransactionUtils.rollbackTransaction();
+            TransactionUtils.endTransaction(true);
+        }
+    }
+
+}
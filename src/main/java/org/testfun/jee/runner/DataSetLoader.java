@@ -0,0 +1,220 @@
+package org.testfun.jee.runner;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads data set files (see {@link org.testfun.jee.DataSet}) into the database using JDBC batches. Two formats are
+ * supported:
+ * <ul>
+ *     <li>JSON files (<code>.json</code>) holding an object whose keys are table names and whose values are arrays of
+ *     rows, each row an object whose keys are column names, e.g. <code>{"USERS": [{"ID": 1, "NAME": "kuki"}]}</code></li>
+ *     <li>CSV files (<code>.csv</code>) holding the rows of the table named after the file (e.g. <code>users.csv</code>),
+ *     the first line holding the column names. Values may be quoted using double quotes, and empty unquoted values are
+ *     inserted as NULL</li>
+ * </ul>
+ * Tables are loaded in the order they appear in the files, so rows referenced by foreign keys should appear first.
+ */
+public class DataSetLoader {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private DataSetLoader() {
+    }
+
+    /**
+     * @param connection the connection used for inserting the rows (not committed)
+     * @param testClass the class the data set files are resolved relative to (unless their path starts with a '/')
+     * @param resources the data set files
+     * @return the number of inserted rows
+     */
+    public static int load(Connection connection, Class<?> testClass, String... resources) {
+        int rows = 0;
+        for (String resource : resources) {
+            URL url = testClass.getResource(resource);
+            if (url == null) {
+                throw new EjbWithMockitoRunnerException("Data set not found: " + resource + " (relative to " + testClass.getName() + ")");
+            }
+
+            try {
+                for (Map.Entry<String, List<Map<String, Object>>> table : read(url, resource).entrySet()) {
+                    rows += insert(connection, table.getKey(), table.getValue());
+                }
+
+            } catch (IOException | SQLException e) {
+                throw new EjbWithMockitoRunnerException("Failed loading data set " + resource, e);
+            }
+        }
+        return rows;
+    }
+
+    private static Map<String, List<Map<String, Object>>> read(URL url, String resource) throws IOException {
+        try (InputStream in = url.openStream()) {
+            if (resource.endsWith(".json")) {
+                return new ObjectMapper().readValue(in, new TypeReference<Map<String, List<Map<String, Object>>>>() { });
+
+            } else if (resource.endsWith(".csv")) {
+                String fileName = resource.substring(resource.lastIndexOf('/') + 1);
+                Map<String, List<Map<String, Object>>> tables = new LinkedHashMap<>();
+                tables.put(fileName.substring(0, fileName.length() - ".csv".length()), readCsv(new InputStreamReader(in, StandardCharsets.UTF_8)));
+                return tables;
+
+            } else {
+                throw new EjbWithMockitoRunnerException("Unsupported data set format (expected .json or .csv): " + resource);
+            }
+        }
+    }
+
+    static List<Map<String, Object>> readCsv(Reader reader) throws IOException {
+        List<List<String>> lines = parseCsv(reader);
+        List<Map<String, Object>> rows = new ArrayList<>();
+        if (lines.isEmpty()) {
+            return rows;
+        }
+
+        List<String> columns = lines.get(0);
+        for (int i = 1; i < lines.size(); ++i) {
+            List<String> values = lines.get(i);
+            if (values.size() != columns.size()) {
+                throw new EjbWithMockitoRunnerException("Line " + (i + 1) + " has " + values.size() + " values but the header has " + columns.size() + " columns");
+            }
+
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int column = 0; column < columns.size(); ++column) {
+                row.put(columns.get(column), values.get(column));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * Parses CSV lines (RFC 4180) - values are separated by commas and may be quoted using double quotes (doubled for a
+     * literal quote). Empty lines are skipped and empty unquoted values are parsed as null.
+     */
+    private static List<List<String>> parseCsv(Reader csv) throws IOException {
+        PushbackReader reader = new PushbackReader(csv);
+        List<List<String>> lines = new ArrayList<>();
+        List<String> line = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        boolean inQuotes = false;
+
+        for (int c = reader.read(); c >= 0; c = reader.read()) {
+            if (inQuotes) {
+                if (c != '"') {
+                    value.append((char) c);
+                    continue;
+                }
+
+                int next = reader.read();
+                if (next == '"') {
+                    value.append('"');
+                } else {
+                    inQuotes = false;
+                    if (next >= 0) {
+                        reader.unread(next);
+                    }
+                }
+
+            } else if (c == '"') {
+                inQuotes = true;
+                quoted = true;
+
+            } else if (c == ',') {
+                line.add(toValue(value, quoted));
+                quoted = false;
+
+            } else if (c == '\n') {
+                endLine(lines, line, value, quoted);
+                line = new ArrayList<>();
+                quoted = false;
+
+            } else if (c != '\r') {
+                value.append((char) c);
+            }
+        }
+
+        endLine(lines, line, value, quoted);
+        return lines;
+    }
+
+    private static void endLine(List<List<String>> lines, List<String> line, StringBuilder value, boolean quoted) {
+        if (line.isEmpty() && value.length() == 0 && !quoted) {
+            return;
+        }
+        line.add(toValue(value, quoted));
+        lines.add(line);
+    }
+
+    private static String toValue(StringBuilder value, boolean quoted) {
+        String string = value.toString();
+        value.setLength(0);
+        return string.isEmpty() && !quoted ? null : string;
+    }
+
+    private static int insert(Connection connection, String table, List<Map<String, Object>> rows) throws SQLException {
+        // Rows may specify different columns - each distinct list of columns is inserted using its own batch
+        Map<List<String>, List<Map<String, Object>>> rowsByColumns = new LinkedHashMap<>();
+        for (Map<String, Object> row : rows) {
+            List<String> columns = new ArrayList<>(row.keySet());
+            List<Map<String, Object>> rowsOfColumns = rowsByColumns.get(columns);
+            if (rowsOfColumns == null) {
+                rowsOfColumns = new ArrayList<>();
+                rowsByColumns.put(columns, rowsOfColumns);
+            }
+            rowsOfColumns.add(row);
+        }
+
+        int inserted = 0;
+        for (Map.Entry<List<String>, List<Map<String, Object>>> entry : rowsByColumns.entrySet()) {
+            List<String> columns = entry.getKey();
+            try (PreparedStatement statement = connection.prepareStatement(getInsertSql(table, columns))) {
+                int batched = 0;
+                for (Map<String, Object> row : entry.getValue()) {
+                    for (int i = 0; i < columns.size(); ++i) {
+                        statement.setObject(i + 1, row.get(columns.get(i)));
+                    }
+                    statement.addBatch();
+
+                    if (++batched == BATCH_SIZE) {
+                        statement.executeBatch();
+                        batched = 0;
+                    }
+                }
+
+                if (batched > 0) {
+                    statement.executeBatch();
+                }
+            }
+            inserted += entry.getValue().size();
+        }
+        return inserted;
+    }
+
+    private static String getInsertSql(String table, List<String> columns) {
+        StringBuilder names = new StringBuilder();
+        StringBuilder parameters = new StringBuilder();
+        for (String column : columns) {
+            names.append(names.length() > 0 ? ", " : "").append(column);
+            parameters.append(parameters.length() > 0 ? ", ?" : "?");
+        }
+        return "insert into " + table + " (" + names + ") values (" + parameters + ")";
+    }
+
+}
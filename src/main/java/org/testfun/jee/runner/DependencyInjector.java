@@ -3,9 +3,13 @@ package org.testfun.jee.runner;
 import org.testfun.jee.runner.inject.*;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class DependencyInjector {
 
@@ -17,8 +21,13 @@ public class DependencyInjector {
 
     private List<Injector> injectors = new LinkedList<>();
 
+    private final MockRegistrar mockRegistrar;
+
+    // The fields to inject (and their injectors) by the class of the injected pojo
+    private final ConcurrentMap<Class<?>, List<InjectionPoint>> injectionPlanByClass = new ConcurrentHashMap<>();
+
     private DependencyInjector() {
-        MockRegistrar mockRegistrar = new MockRegistrar();
+        mockRegistrar = new MockRegistrar();
         injectors = Arrays.asList(
                 mockRegistrar, // the MockRegistrar injector must be listed before the EJB injector to guarantee that mocks are registered before they are used.
                 new EjbInjector().withMocking(mockRegistrar),
@@ -33,20 +42,46 @@ public class DependencyInjector {
             return null;
         }
 
+        for (InjectionPoint injectionPoint : getInjectionPlan(pojo.getClass())) {
+            injectionPoint.injector.inject(pojo, injectionPoint.field);
+        }
+
+        return pojo;
+    }
+
+    private List<InjectionPoint> getInjectionPlan(Class<?> pojoClass) {
+        List<InjectionPoint> injectionPlan = injectionPlanByClass.get(pojoClass);
+        if (injectionPlan == null) {
+            injectionPlan = createInjectionPlan(pojoClass);
+            injectionPlanByClass.putIfAbsent(pojoClass, injectionPlan);
+        }
+
+        return injectionPlan;
+    }
+
+    private List<InjectionPoint> createInjectionPlan(Class<?> pojoClass) {
+        // Mocks of the whole class hierarchy are registered before any injection is attempted
+        List<InjectionPoint> mockRegistrations = new ArrayList<>();
+        List<InjectionPoint> injections = new ArrayList<>();
+
         // Loop over the class hierarchy of the target pojo
-        for (Class clazz = pojo.getClass(); !clazz.equals(Object.class); clazz = clazz.getSuperclass()) {
+        for (Class clazz = pojoClass; !clazz.equals(Object.class); clazz = clazz.getSuperclass()) {
 
-            // For each class, iterate over its field and inject a value if a proper injector was found for the field's annotation.
-            // Note that the outer loop is over the injector so mock objects will be registered before any injection is attempted
+            // For each class, iterate over its field and plan an injection if a proper injector was found for the field's annotation.
             Field[] fields = clazz.getDeclaredFields();
             for (Injector injector : injectors) {
                 for (Field field : fields) {
-                    injector.inject(pojo, field);
+                    if (injector.accepts(field)) {
+                        (injector == mockRegistrar ? mockRegistrations : injections).add(new InjectionPoint(injector, field));
+                    }
                 }
             }
         }
 
-        return pojo;
+        List<InjectionPoint> injectionPlan = new ArrayList<>(mockRegistrations.size() + injections.size());
+        injectionPlan.addAll(mockRegistrations);
+        injectionPlan.addAll(injections);
+        return Collections.unmodifiableList(injectionPlan);
     }
 
     public void reset() {
@@ -54,4 +89,14 @@ public class DependencyInjector {
             injector.reset();
         }
     }
+
+    private static class InjectionPoint {
+        private final Injector injector;
+        private final Field field;
+
+        private InjectionPoint(Injector injector, Field field) {
+            this.injector = injector;
+            this.field = field;
+        }
+    }
 }
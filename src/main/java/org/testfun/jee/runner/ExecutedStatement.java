@@ -0,0 +1,100 @@
+package org.testfun.jee.runner;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * A JDBC statement execution recorded by the {@link StatementRecorder}.
+ */
+public class ExecutedStatement {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+
+    private static final Pattern NUMERIC_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final String sql;
+
+    private final int bindCount;
+
+    private final long nanos;
+
+    private volatile long rows;
+
+    ExecutedStatement(String sql, int bindCount, long nanos, long rows) {
+        this.sql = sql;
+        this.bindCount = bindCount;
+        this.nanos = nanos;
+        this.rows = rows;
+    }
+
+    /**
+     * @return the SQL text of the statement (for batches of a plain statement, the batched statements separated by
+     * semicolons)
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return the number of parameters bound to the statement (for batches, the total over all the batched executions)
+     */
+    public int getBindCount() {
+        return bindCount;
+    }
+
+    /**
+     * @return the time the driver took to execute the statement, not including fetching its result set
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * @return the number of rows updated by the statement, or the number of rows read so far from its result set
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    void rowRead() {
+        ++rows;
+    }
+
+    /**
+     * @return whether the statement is a query (SELECT statement)
+     */
+    public boolean isQuery() {
+        String shape = getShape();
+        return shape.startsWith("select ") || shape.startsWith("with ");
+    }
+
+    /**
+     * @return the normalized SQL of the statement - literals replaced by parameters, lists of parameters collapsed into a
+     * single parameter and whitespace collapsed - so repeated executions of a query with different values have the same
+     * shape
+     */
+    public String getShape() {
+        return shapeOf(sql);
+    }
+
+    static String shapeOf(String sql) {
+        if (sql == null) {
+            return "";
+        }
+
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMERIC_LITERAL.matcher(shape).replaceAll("?");
+        shape = PARAMETER_LIST.matcher(shape).replaceAll("(?)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s [binds=%d, rows=%d, %.3fms]", sql, bindCount, rows, nanos / 1e6);
+    }
+
+}
@@ -0,0 +1,173 @@
+package org.testfun.jee.runner;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds the mutable state of a single test - the instances (EJBs, mocks, etc.) registered by the injectors and, when
+ * tests are running in parallel, the entity manager used by the test.
+ * <p>
+ * The {@link org.testfun.jee.EjbWithMockitoRunner} creates a new context for each test and binds it to the thread
+ * running the test, so tests running concurrently on different threads never share injected instances. Code running
+ * on a thread with no bound context (e.g. before any test started) uses a default context.
+ * <p>
+ * By default all contexts share a single entity manager and data source. Set the <code>org.testfun.jee.parallel</code>
+ * system property in order to give each test its own entity manager, connection and isolated database (see
+ * {@link WorkerDatabase}) when running tests in parallel.
+ */
+public class InjectionContext {
+
+    private static final InjectionContext DEFAULT = new InjectionContext(false);
+
+    private static final ThreadLocal<InjectionContext> BOUND = new ThreadLocal<>();
+
+    /**
+     * @return the context bound to the current thread, or the default context if none is bound
+     */
+    public static InjectionContext current() {
+        InjectionContext context = BOUND.get();
+        return context != null ? context : DEFAULT;
+    }
+
+    /**
+     * @return the context used by threads to which no context is bound
+     */
+    public static InjectionContext getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Creates a new context for a test.
+     * @return the new context which should be closed when the test is done
+     */
+    public static InjectionContext create() {
+        return new InjectionContext(Boolean.getBoolean("org.testfun.jee.parallel"));
+    }
+
+    private final boolean ownDatabase;
+
+    private final ConcurrentMap<Object, Map<Class, Object>> registryByOwner = new ConcurrentHashMap<>();
+
+    private WorkerDatabase database;
+
+    private EntityManager entityManager;
+
+    private volatile StatementRecorder statementRecorder;
+
+    private InjectionContext(boolean ownDatabase) {
+        this.ownDatabase = ownDatabase;
+    }
+
+    /**
+     * Binds this context to the current thread (e.g. the thread running the test or a server thread handling a request
+     * sent by the test).
+     * @return the context previously bound to the current thread (may be null) - should be passed to {@link #unbind(InjectionContext)}
+     */
+    public InjectionContext bind() {
+        InjectionContext previous = BOUND.get();
+        BOUND.set(this);
+        return previous;
+    }
+
+    /**
+     * Restores the context that was bound to the current thread before {@link #bind()} was called.
+     * @param previous the value returned by {@link #bind()}
+     */
+    public void unbind(InjectionContext previous) {
+        if (previous != null) {
+            BOUND.set(previous);
+        } else {
+            BOUND.remove();
+        }
+    }
+
+    /**
+     * Gets the registry of instances owned by an injector.
+     * @param owner the owner of the registry
+     * @return a thread-safe registry of instances by class
+     */
+    public Map<Class, Object> getRegistry(Object owner) {
+        Map<Class, Object> registry = registryByOwner.get(owner);
+        if (registry == null) {
+            registry = Collections.synchronizedMap(new HashMap<Class, Object>());
+            Map<Class, Object> existing = registryByOwner.putIfAbsent(owner, registry);
+            registry = existing != null ? existing : registry;
+        }
+        return registry;
+    }
+
+    public synchronized EntityManager getEntityManager() {
+        if (!ownDatabase) {
+            return SingletonEntityManager.getSharedInstance();
+        }
+
+        if (entityManager == null) {
+            entityManager = getDatabase().createEntityManager();
+        }
+        return entityManager;
+    }
+
+    public synchronized DataSource getDataSource() {
+        if (!ownDatabase) {
+            return SingletonDataSource.getSharedDataSource();
+        }
+
+        return getDatabase().getDataSource();
+    }
+
+    private WorkerDatabase getDatabase() {
+        if (database == null) {
+            database = WorkerDatabase.acquire();
+        }
+        return database;
+    }
+
+    StatementRecorder getStatementRecorder() {
+        return statementRecorder;
+    }
+
+    void setStatementRecorder(StatementRecorder statementRecorder) {
+        this.statementRecorder = statementRecorder;
+    }
+
+    synchronized void clearStatementRecorder(StatementRecorder statementRecorder) {
+        if (this.statementRecorder == statementRecorder) {
+            this.statementRecorder = null;
+        }
+    }
+
+    /**
+     * Clears the registries of this context.
+     */
+    public void reset() {
+        registryByOwner.clear();
+    }
+
+    /**
+     * Releases the resources of this context (rolling back the transaction of its own entity manager and releasing its
+     * database).
+     */
+    public synchronized void close() {
+        reset();
+
+        if (entityManager != null) {
+            EntityTransaction tx = entityManager.getTransaction();
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            entityManager.close();
+            entityManager = null;
+        }
+
+        if (database != null) {
+            database.release();
+            database = null;
+        }
+    }
+}
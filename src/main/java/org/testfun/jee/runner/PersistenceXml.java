@@ -18,6 +18,7 @@ public class PersistenceXml {
 
     private final String connectionUrl;
     private final String persistenceUnitName;
+    private final String schemaGeneration;
 
     private PersistenceXml() {
         Document document;
@@ -35,6 +36,7 @@ public class PersistenceXml {
 
             connectionUrl = extractConnectionURL(document, xPath);
             persistenceUnitName = (String) xPath.evaluate("//*[local-name()='persistence-unit']/@name", document, XPathConstants.STRING);
+            schemaGeneration = extractSchemaGeneration(document, xPath);
 
         } catch (XPathExpressionException e) {
             throw new EjbWithMockitoRunnerException("Failed initializing XPath expressions");
@@ -57,6 +59,20 @@ public class PersistenceXml {
         return connectionURL;
     }
 
+    /**
+     * @return the value of the hibernate.hbm2ddl.auto property, or of the javax.persistence.schema-generation.database.action
+     * property if the former isn't set (may be empty)
+     */
+    private String extractSchemaGeneration(final Document document, final XPath xPath) throws XPathExpressionException {
+        String schemaGeneration = (String) xPath.evaluate("//*[local-name()='property' and @name='hibernate.hbm2ddl.auto']/@value", document, XPathConstants.STRING);
+
+        if (StringUtils.isBlank(schemaGeneration)) {
+            schemaGeneration = (String) xPath.evaluate("//*[local-name()='property' and @name='javax.persistence.schema-generation.database.action']/@value", document, XPathConstants.STRING);
+        }
+
+        return schemaGeneration.trim();
+    }
+
     private String getHibernateURL(final Document document, final XPath xPath) throws XPathExpressionException {
         return (String) xPath.evaluate("//*[local-name()='property' and @name='hibernate.connection.url']/@value", document, XPathConstants.STRING);
     }
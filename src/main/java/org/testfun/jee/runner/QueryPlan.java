@@ -0,0 +1,103 @@
+package org.testfun.jee.runner;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The execution plan of a query, as reported by HSQLDB's <code>EXPLAIN PLAN FOR</code> statement, and the tables the
+ * plan reads using a full table scan rather than an index.
+ */
+public class QueryPlan {
+
+    private final String sql;
+
+    private final String plan;
+
+    private final List<String> fullScans;
+
+    QueryPlan(String sql, String plan) {
+        this.sql = sql;
+        this.plan = plan;
+        this.fullScans = Collections.unmodifiableList(parseFullScans(plan));
+    }
+
+    /**
+     * Explains a query without executing it.
+     * @param connection the connection used for explaining the query
+     * @param sql the query (may contain parameters)
+     * @return the plan of the query
+     * @throws SQLException when the query can't be explained (e.g. the database isn't HSQLDB)
+     */
+    public static QueryPlan explain(Connection connection, String sql) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN PLAN FOR " + sql);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                plan.append(resultSet.getString(1)).append('\n');
+            }
+        }
+        return new QueryPlan(sql, plan.toString());
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return the plan as reported by the database
+     */
+    public String getPlan() {
+        return plan;
+    }
+
+    /**
+     * @return the (upper case, unqualified) names of the tables read using a full table scan, in the order they appear in
+     * the plan
+     */
+    public List<String> getFullScans() {
+        return fullScans;
+    }
+
+    /**
+     * @param table a table name, either qualified by a schema or not (case insensitive)
+     * @return whether the table is read using a full table scan
+     */
+    public boolean isFullScanOf(String table) {
+        String name = table.substring(table.lastIndexOf('.') + 1).toUpperCase(Locale.ROOT);
+        return fullScans.contains(name);
+    }
+
+    /**
+     * Each range variable (table read by the query or one of its sub-queries) of an HSQLDB plan has a "table=" line
+     * followed by an "access=" line, e.g. "access=FULL SCAN" or "access=INDEX PRED".
+     */
+    static List<String> parseFullScans(String plan) {
+        List<String> fullScans = new ArrayList<>();
+        String table = null;
+        for (String line : plan.split("\n")) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("table=")) {
+                table = trimmed.substring("table=".length()).trim().toUpperCase(Locale.ROOT);
+
+            } else if (trimmed.startsWith("access=") && table != null) {
+                if ("FULL SCAN".equals(trimmed.substring("access=".length()).trim()) && !fullScans.contains(table)) {
+                    fullScans.add(table);
+                }
+                table = null;
+            }
+        }
+        return fullScans;
+    }
+
+    @Override
+    public String toString() {
+        return fullScans.isEmpty() ? sql : sql + " [full scan of " + fullScans + "]";
+    }
+
+}
@@ -0,0 +1,303 @@
+package org.testfun.jee.runner;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.cfg.AvailableSettings;
+import org.testfun.jee.runner.inject.ClassPathScanner;
+
+import javax.persistence.Embeddable;
+import javax.persistence.Entity;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.MappedSuperclass;
+import javax.persistence.Persistence;
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * A snapshot of the database schema (and of any data loaded by Hibernate's import scripts) generated by Hibernate for
+ * the persistence unit, used for creating the schema of fresh in-memory HSQLDB databases without running hbm2ddl again.
+ * <p>
+ * The first database created in the JVM has its schema generated by Hibernate as usual, after which the schema is
+ * captured using HSQLDB's <code>SCRIPT</code> statement. Later databases (e.g. the databases of parallel workers) are
+ * created by replaying the captured statements.
+ * <p>
+ * When the <code>org.testfun.jee.schema_template_dir</code> system property is set, the snapshot is also stored in that
+ * directory, keyed by a hash of persistence.xml, orm.xml, the class files of all entities, embeddables and mapped
+ * superclasses found in the class path directories (regardless of the scanned packages) and the path, size and
+ * modification time of every JAR in the class path, so it is reused by later JVMs as long as the mapping wasn't modified.
+ */
+class SchemaTemplate {
+
+    private static final Logger LOGGER = LogManager.getLogger(SchemaTemplate.class);
+
+    private static final SchemaTemplate INSTANCE = new SchemaTemplate();
+
+    private static final String HSQLDB_MEM_URL_PREFIX = "jdbc:hsqldb:mem:";
+
+    private static final List<String> GENERATING_SCHEMA = Arrays.asList("create", "create-drop", "create-only", "drop-and-create");
+
+    // Schemas that are created by HSQLDB itself and must not be replayed
+    private static final List<String> SYSTEM_SCHEMAS = Arrays.asList("SYSTEM_LOBS", "INFORMATION_SCHEMA");
+
+    static SchemaTemplate getInstance() {
+        return INSTANCE;
+    }
+
+    private List<String> statements;
+
+    // Hashing requires scanning the whole class path - computed once, and only when a template file is looked for
+    private String mappingHash;
+
+    private SchemaTemplate() {
+    }
+
+    /**
+     * Creates an entity manager factory for the persistence unit whose schema is created from the template when the
+     * database is a fresh in-memory HSQLDB database and the persistence unit generates its schema on startup.
+     * @param connectionUrl URL of the database
+     * @param dataSource data source of the database, always returning the same connection
+     * @return the new entity manager factory
+     */
+    synchronized EntityManagerFactory createEntityManagerFactory(String connectionUrl, DataSource dataSource) {
+        if (!connectionUrl.startsWith(HSQLDB_MEM_URL_PREFIX) || !GENERATING_SCHEMA.contains(PersistenceXml.getInstnace().getSchemaGeneration())) {
+            return createEntityManagerFactory(dataSource, true);
+        }
+
+        // Once captured (or read), the statements are replayed without looking for the template file again
+        File templateFile = null;
+        if (statements == null) {
+            templateFile = getTemplateFile();
+            if (templateFile != null && templateFile.isFile()) {
+                statements = readTemplate(templateFile);
+            }
+        }
+
+        try {
+            Connection connection = dataSource.getConnection();
+            if (statements != null) {
+                restore(connection, statements);
+                return createEntityManagerFactory(dataSource, false);
+            }
+
+            EntityManagerFactory entityManagerFactory = createEntityManagerFactory(dataSource, true);
+            statements = capture(connection);
+            if (templateFile != null) {
+                writeTemplate(templateFile, statements);
+            }
+            return entityManagerFactory;
+
+        } catch (SQLException | IOException e) {
+            throw new EjbWithMockitoRunnerException("Failed creating schema from template", e);
+        }
+    }
+
+    private EntityManagerFactory createEntityManagerFactory(DataSource dataSource, boolean generateSchema) {
+        Map<String, Object> config = new HashMap<>();
+        config.put(AvailableSettings.DATASOURCE, dataSource);
+        if (!generateSchema) {
+            config.put(AvailableSettings.HBM2DDL_AUTO, "none");
+            config.put(AvailableSettings.HBM2DDL_DATABASE_ACTION, "none");
+        }
+
+        return Persistence.createEntityManagerFactory(PersistenceXml.getInstnace().getPersistenceUnitName(), config);
+    }
+
+    static void restore(Connection connection, List<String> statements) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+
+            // The replayed statements may have switched the session to another schema
+            statement.execute("SET SCHEMA PUBLIC");
+        }
+        connection.commit();
+    }
+
+    static List<String> capture(Connection connection) throws SQLException, IOException {
+        // SCRIPT without a file name returns only the DDL - script to a file so data loaded by import scripts is included
+        Path scriptFile = Files.createTempFile("testfun-schema", ".script");
+        Files.delete(scriptFile);
+        try {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SCRIPT '" + scriptFile.toAbsolutePath().toString().replace("'", "''") + "'");
+            }
+            return filter(Files.readAllLines(scriptFile, StandardCharsets.UTF_8));
+
+        } finally {
+            Files.deleteIfExists(scriptFile);
+        }
+    }
+
+    /**
+     * Keeps the statements creating the user's schema objects and data, dropping database settings, users, grants and
+     * HSQLDB's own schemas which already exist in a fresh database.
+     * @param script the lines of a script written by HSQLDB's SCRIPT statement
+     * @return the statements to replay
+     */
+    static List<String> filter(List<String> script) {
+        List<String> statements = new ArrayList<>();
+        String currentSchema = "PUBLIC";
+
+        for (String line : script) {
+            if (line.startsWith("SET SCHEMA ")) {
+                currentSchema = line.substring("SET SCHEMA ".length()).trim();
+                if (!SYSTEM_SCHEMAS.contains(currentSchema)) {
+                    statements.add(line);
+                }
+
+            } else if (line.startsWith("CREATE SCHEMA ")) {
+                if (!line.startsWith("CREATE SCHEMA PUBLIC ")) {
+                    statements.add(line);
+                }
+
+            } else if (line.startsWith("INSERT INTO ")) {
+                if (!SYSTEM_SCHEMAS.contains(currentSchema)) {
+                    statements.add(line);
+                }
+
+            } else if (line.startsWith("CREATE ") && !line.startsWith("CREATE USER ") && !line.startsWith("CREATE ROLE ")) {
+                statements.add(line);
+
+            } else if (line.startsWith("ALTER TABLE ") || (line.startsWith("ALTER SEQUENCE ") && !isSystemObject(line.substring("ALTER SEQUENCE ".length())))) {
+                statements.add(line);
+            }
+        }
+
+        return statements;
+    }
+
+    private static boolean isSystemObject(String qualifiedName) {
+        for (String systemSchema : SYSTEM_SCHEMAS) {
+            if (qualifiedName.startsWith(systemSchema + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private File getTemplateFile() {
+        String directory = System.getProperty("org.testfun.jee.schema_template_dir");
+        if (directory == null || directory.trim().isEmpty()) {
+            return null;
+        }
+
+        if (mappingHash == null) {
+            mappingHash = getMappingHash();
+        }
+        return new File(directory, "schema-" + mappingHash + ".sql");
+    }
+
+    private List<String> readTemplate(File templateFile) {
+        try {
+            LOGGER.info("Creating schema from template: " + templateFile);
+            return Files.readAllLines(templateFile.toPath(), StandardCharsets.UTF_8);
+
+        } catch (IOException e) {
+            LOGGER.warn("Failed reading schema template - generating the schema", e);
+            return null;
+        }
+    }
+
+    private void writeTemplate(File templateFile, List<String> statements) throws IOException {
+        Path directory = templateFile.getParentFile().toPath();
+        Files.createDirectories(directory);
+
+        // Write to a temporary file and rename it so other JVMs never see a partially written template
+        Path tempFile = Files.createTempFile(directory, templateFile.getName(), ".tmp");
+        try {
+            Files.write(tempFile, statements, StandardCharsets.UTF_8);
+            Files.move(tempFile, templateFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    String getMappingHash() {
+        try {
+            final ClassLoader classLoader = getClass().getClassLoader();
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+
+            for (String resource : Arrays.asList("META-INF/persistence.xml", "META-INF/orm.xml")) {
+                for (URL url : Collections.list(getResources(classLoader, resource))) {
+                    digest(digest, url);
+                }
+            }
+
+            final SortedSet<String> mappedClasses = new TreeSet<>();
+            ClassPathScanner.unfiltered().scanForAnnotatedClasses(new ClassPathScanner.Handler() {
+                @Override
+                public void classFound(Class<?> aClass) {
+                    mappedClasses.add(aClass.getName());
+                }
+            }, Entity.class, Embeddable.class, MappedSuperclass.class);
+
+            for (String mappedClass : mappedClasses) {
+                digest.update(mappedClass.getBytes(StandardCharsets.UTF_8));
+                URL url = classLoader.getResource(mappedClass.replace('.', '/') + ".class");
+                if (url != null) {
+                    digest(digest, url);
+                }
+            }
+
+            // JARs aren't scanned (unless JAR scanning is enabled) - any modified JAR may hold modified entities
+            for (String root : System.getProperty("java.class.path", ".").split(File.pathSeparator)) {
+                File rootFile = new File(root);
+                if (rootFile.isFile()) {
+                    digest.update((rootFile.getAbsolutePath() + ":" + rootFile.length() + ":" + rootFile.lastModified()).getBytes(StandardCharsets.UTF_8));
+                }
+            }
+
+            StringBuilder hash = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hash.append(String.format("%02x", b));
+            }
+            return hash.toString();
+
+        } catch (NoSuchAlgorithmException e) {
+            throw new EjbWithMockitoRunnerException("SHA-1 isn't supported", e);
+        }
+    }
+
+    private Enumeration<URL> getResources(ClassLoader classLoader, String resource) {
+        try {
+            return classLoader.getResources(resource);
+        } catch (IOException e) {
+            throw new EjbWithMockitoRunnerException("Failed finding " + resource, e);
+        }
+    }
+
+    private void digest(MessageDigest digest, URL url) {
+        try (InputStream in = url.openStream()) {
+            byte[] buffer = new byte[8192];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                digest.update(buffer, 0, read);
+            }
+
+        } catch (IOException e) {
+            throw new EjbWithMockitoRunnerException("Failed reading " + url, e);
+        }
+    }
+
+}
@@ -4,15 +4,29 @@ import org.apache.logging.log4j.LogManager;
 
 import javax.sql.DataSource;
 import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 public class SingletonDataSource {
 
+    /**
+     * @return the data source of the current {@link InjectionContext}
+     */
     public static DataSource getDataSource() {
+        return InjectionContext.current().getDataSource();
+    }
+
+    static DataSource getSharedDataSource() {
         return INSTANCE.dataSource;
     }
 
@@ -20,13 +34,9 @@ public class SingletonDataSource {
 
     private DataSource dataSource;
 
-    private Connection delegateConnection;
-
     private SingletonDataSource() {
         try {
-            Connection connection = DriverManager.getConnection(PersistenceXml.getInstnace().getConnectionUrl());
-            connection.setAutoCommit(false);
-            dataSource = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{DataSource.class}, new NotClosableDataSource(connection));
+            dataSource = createNotClosableDataSource(openConnection(PersistenceXml.getInstnace().getConnectionUrl()));
             LogManager.getLogger(SingletonDataSource.class).info("Data source initialized successfully");
 
         } catch (SQLException e) {
@@ -35,15 +45,27 @@ public class SingletonDataSource {
         }
     }
 
+    static Connection openConnection(String connectionUrl) throws SQLException {
+        Connection connection = DriverManager.getConnection(connectionUrl);
+        connection.setAutoCommit(false);
+        return connection;
+    }
+
+    static DataSource createNotClosableDataSource(Connection connection) {
+        return (DataSource) Proxy.newProxyInstance(SingletonDataSource.class.getClassLoader(), new Class[]{DataSource.class}, new NotClosableDataSource(connection));
+    }
+
     /**
      * A DataSource proxy that always return the same JDBC connection which doesn't close when "close" is called.
      * This is needed so JDBC calls will be using the same connection and transaction as JPA calls.
      * Note that the connection returned from the data-source is never closed as it is up to the entity manager to
      * close its connection
      */
-    private class NotClosableDataSource implements InvocationHandler {
+    private static class NotClosableDataSource implements InvocationHandler {
+
+        private final Connection delegateConnection;
 
-        private NotClosableDataSource(Connection connection) throws SQLException {
+        private NotClosableDataSource(Connection connection) {
             delegateConnection = connection;
         }
 
@@ -70,8 +92,10 @@ public class SingletonDataSource {
 
     /**
      * A JDBC Connection proxy that ignores calls to close() - used when the connection is retrieved from the entity manager.
+     * Statements created by the connection while a {@link StatementRecorder} is started are proxied as well, so their
+     * executions are recorded - other statements are returned as is, without any overhead.
      */
-    private class NotClosableConnectionProxy implements InvocationHandler {
+    private static class NotClosableConnectionProxy implements InvocationHandler {
 
         private Connection delegate;
 
@@ -90,8 +114,189 @@ public class SingletonDataSource {
             }
 
             else {
+                Object result;
+                try {
+                    result = method.invoke(delegate, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+
+                if (result instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType()) && StatementRecorder.isStarted()) {
+                    // The SQL of prepared and callable statements is passed when they are created
+                    String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                    return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{method.getReturnType()}, new RecordingStatementProxy((Statement) result, sql));
+                }
+                return result;
+            }
+        }
+    }
+
+    /**
+     * A JDBC Statement (or PreparedStatement/CallableStatement) proxy that reports every execution - its SQL, number of
+     * bound parameters, execution time and number of rows - to the {@link StatementRecorder}. Nothing is measured, and
+     * result sets aren't proxied, while no recorder would record the execution.
+     */
+    private static class RecordingStatementProxy implements InvocationHandler {
+
+        private final Statement delegate;
+
+        private final String preparedSql;
+
+        private final Set<Object> boundParameters = new HashSet<>();
+
+        private final List<String> batchSql = new ArrayList<>();
+
+        private int batchBindCount;
+
+        private ExecutedStatement lastExecuted;
+
+        private RecordingStatementProxy(Statement delegate, String preparedSql) {
+            this.delegate = delegate;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object... args) throws Throwable {
+            String name = method.getName();
+            if ("equals".equals(name)) {
+                return proxy == args[0];
+            }
+
+            if (name.startsWith("execute")) {
+                if (StatementRecorder.isRecording()) {
+                    return execute(method, args);
+                }
+                lastExecuted = null;
+            }
+
+            Object result = invokeDelegate(method, args);
+
+            // Setters of statement options take a single argument, setters of parameters take an index (or a name) and a value
+            if (name.startsWith("set") && args != null && args.length >= 2) {
+                boundParameters.add(args[0]);
+
+            } else if ("clearParameters".equals(name)) {
+                boundParameters.clear();
+
+            } else if ("addBatch".equals(name)) {
+                if (args != null && args.length == 1) {
+                    batchSql.add((String) args[0]);
+                }
+                batchBindCount += boundParameters.size();
+
+            } else if ("clearBatch".equals(name) || "executeBatch".equals(name) || "executeLargeBatch".equals(name)) {
+                batchSql.clear();
+                batchBindCount = 0;
+
+            } else if ("getResultSet".equals(name) && result instanceof ResultSet && lastExecuted != null) {
+                return countRows((ResultSet) result, lastExecuted);
+            }
+
+            return result;
+        }
+
+        private Object execute(Method method, Object... args) throws Throwable {
+            boolean batch = method.getName().endsWith("Batch");
+            String sql;
+            int bindCount;
+            if (batch) {
+                sql = preparedSql != null ? preparedSql : join(batchSql);
+                bindCount = batchBindCount;
+                batchSql.clear();
+                batchBindCount = 0;
+            } else {
+                sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+                bindCount = boundParameters.size();
+            }
+
+            long start = System.nanoTime();
+            Object result = invokeDelegate(method, args);
+            long nanos = System.nanoTime() - start;
+
+            ExecutedStatement executed = new ExecutedStatement(sql, bindCount, nanos, getUpdatedRows(result));
+            lastExecuted = executed;
+            StatementRecorder.statementExecuted(executed);
+
+            return result instanceof ResultSet ? countRows((ResultSet) result, executed) : result;
+        }
+
+        private long getUpdatedRows(Object result) throws SQLException {
+            if (result instanceof Number) {
+                return Math.max(0, ((Number) result).longValue());
+
+            } else if (result instanceof int[]) {
+                long rows = 0;
+                for (int count : (int[]) result) {
+                    rows += Math.max(0, count);
+                }
+                return rows;
+
+            } else if (result instanceof long[]) {
+                long rows = 0;
+                for (long count : (long[]) result) {
+                    rows += Math.max(0, count);
+                }
+                return rows;
+
+            } else if (Boolean.FALSE.equals(result)) {
+                return Math.max(0, delegate.getUpdateCount());
+            }
+
+            return 0;
+        }
+
+        private Object invokeDelegate(Method method, Object... args) throws Throwable {
+            try {
                 return method.invoke(delegate, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private static String join(List<String> statements) {
+            StringBuilder sql = new StringBuilder();
+            for (String statement : statements) {
+                sql.append(sql.length() > 0 ? "; " : "").append(statement);
+            }
+            return sql.toString();
+        }
+
+        private static ResultSet countRows(ResultSet resultSet, ExecutedStatement executed) {
+            return (ResultSet) Proxy.newProxyInstance(SingletonDataSource.class.getClassLoader(), new Class[]{ResultSet.class}, new RowCountingResultSetProxy(resultSet, executed));
+        }
+    }
+
+    /**
+     * A JDBC ResultSet proxy counting the rows read from the result set of an executed statement.
+     */
+    private static class RowCountingResultSetProxy implements InvocationHandler {
+
+        private final ResultSet delegate;
+
+        private final ExecutedStatement executed;
+
+        private RowCountingResultSetProxy(ResultSet delegate, ExecutedStatement executed) {
+            this.delegate = delegate;
+            this.executed = executed;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object... args) throws Throwable {
+            if ("equals".equals(method.getName())) {
+                return proxy == args[0];
+            }
+
+            Object result;
+            try {
+                result = method.invoke(delegate, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+
+            if ("next".equals(method.getName()) && Boolean.TRUE.equals(result)) {
+                executed.rowRead();
             }
+            return result;
         }
     }
 
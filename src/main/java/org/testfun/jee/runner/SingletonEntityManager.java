@@ -1,34 +1,41 @@
 package org.testfun.jee.runner;
 
-import org.hibernate.cfg.AvailableSettings;
-
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
-import javax.persistence.Persistence;
-import javax.sql.DataSource;
-import java.util.HashMap;
-import java.util.Map;
 
 public class SingletonEntityManager {
 
+    /**
+     * @return the entity manager of the current {@link InjectionContext}
+     */
     public static EntityManager getInstance() {
+        return InjectionContext.current().getEntityManager();
+    }
+
+    static EntityManager getSharedInstance() {
         return INSTANCE.getEntityManager();
     }
 
     private static final SingletonEntityManager INSTANCE = new SingletonEntityManager();
 
+    private EntityManagerFactory entityManagerFactory;
+
     private EntityManager entityManager;
 
     private SingletonEntityManager() {
     }
 
+    private synchronized EntityManagerFactory getEntityManagerFactory() {
+        if (entityManagerFactory == null) {
+            entityManagerFactory = SchemaTemplate.getInstance().createEntityManagerFactory(PersistenceXml.getInstnace().getConnectionUrl(), SingletonDataSource.getSharedDataSource());
+        }
+
+        return entityManagerFactory;
+    }
+
     private synchronized EntityManager getEntityManager() {
         if (entityManager == null) {
-            Map<String, DataSource> config = new HashMap<>();
-            config.put(AvailableSettings.DATASOURCE, SingletonDataSource.getDataSource());
-
-            EntityManagerFactory emf = Persistence.createEntityManagerFactory(PersistenceXml.getInstnace().getPersistenceUnitName(), config);
-            entityManager = emf.createEntityManager();
+            entityManager = getEntityManagerFactory().createEntityManager();
         }
 
         return entityManager;
@@ -0,0 +1,240 @@
+package org.testfun.jee.runner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records the JDBC statements executed through the connections of {@link SingletonDataSource} while the recorder is
+ * started (see {@link ExecutedStatement}).
+ * <p>
+ * A recorder started using {@link #start()} records the statements executed on the current thread. Such recorders may
+ * be nested (e.g. a recorder of a whole test and a recorder of a single request handled on the same thread) - a
+ * statement is recorded by all the started recorders of the thread. A recorder started using {@link #startForContext()}
+ * records the statements executed on any thread bound to the current {@link InjectionContext}, e.g. by a test and by the
+ * server threads handling the requests it sends. A recorder started using {@link #startForRequest()} records the
+ * statements executed on the current thread as well as those executed by threads which aren't bound to any test's
+ * context (e.g. an executor the resource hands work to) and aren't handling a request themselves.
+ */
+public class StatementRecorder {
+
+    private static final ThreadLocal<StatementRecorder> ACTIVE = new ThreadLocal<>();
+
+    // Number of recorders started (on any thread) and not stopped yet - statements aren't instrumented while it's zero
+    private static final AtomicInteger STARTED = new AtomicInteger();
+
+    // Recorders of the requests being handled - statements of threads that aren't bound to a test are attributed to them
+    private static final Set<StatementRecorder> REQUESTS = Collections.newSetFromMap(new ConcurrentHashMap<StatementRecorder, Boolean>());
+
+    private final StatementRecorder outer;
+
+    private final InjectionContext context;
+
+    private final boolean request;
+
+    private final List<ExecutedStatement> statements = new ArrayList<>();
+
+    private boolean stopped;
+
+    private StatementRecorder(StatementRecorder outer, InjectionContext context, boolean request) {
+        this.outer = outer;
+        this.context = context;
+        this.request = request;
+    }
+
+    /**
+     * Starts recording the statements executed on the current thread.
+     * @return the new recorder, which must be stopped on the same thread
+     */
+    public static StatementRecorder start() {
+        StatementRecorder recorder = new StatementRecorder(ACTIVE.get(), null, false);
+        STARTED.incrementAndGet();
+        ACTIVE.set(recorder);
+        return recorder;
+    }
+
+    /**
+     * Starts recording the statements executed while handling a request on the current thread - including those
+     * executed meanwhile by threads which aren't bound to a test's {@link InjectionContext} and aren't handling a request
+     * (when requests overlap, such statements are recorded by all of them).
+     * @return the new recorder, which must be stopped (on any thread) when the request is handled
+     */
+    public static StatementRecorder startForRequest() {
+        StatementRecorder recorder = new StatementRecorder(ACTIVE.get(), null, true);
+        STARTED.incrementAndGet();
+        REQUESTS.add(recorder);
+        ACTIVE.set(recorder);
+        return recorder;
+    }
+
+    /**
+     * @return the innermost recorder started on the current thread and not stopped yet, or null if there is none
+     */
+    public static StatementRecorder current() {
+        return ACTIVE.get();
+    }
+
+    /**
+     * Stops the recorders started on the current thread since {@link #current()} returned a recorder. Used by code
+     * dispatching requests to resources, so a recorder started while handling a request doesn't leak to the next
+     * requests handled by the thread when the request fails before stopping it.
+     * @param previous the value returned by {@link #current()} (may be null)
+     */
+    public static void restore(StatementRecorder previous) {
+        for (StatementRecorder recorder = ACTIVE.get(); recorder != null && recorder != previous; recorder = recorder.outer) {
+            recorder.markStopped();
+        }
+
+        if (previous != null) {
+            ACTIVE.set(previous);
+        } else {
+            ACTIVE.remove();
+        }
+    }
+
+    /**
+     * Starts recording the statements executed on all the threads bound to the current {@link InjectionContext},
+     * replacing any recorder previously started for the context.
+     * @return the new recorder
+     */
+    public static StatementRecorder startForContext() {
+        InjectionContext context = InjectionContext.current();
+        StatementRecorder recorder = new StatementRecorder(null, context, false);
+        STARTED.incrementAndGet();
+        StatementRecorder replaced = context.getStatementRecorder();
+        context.setStatementRecorder(recorder);
+        if (replaced != null) {
+            replaced.stop();
+        }
+        return recorder;
+    }
+
+    /**
+     * Stops recording - statements executed later on the thread are recorded by the recorder that was active when this
+     * recorder was started (if any).
+     * @return the number of statements recorded
+     */
+    public synchronized long stop() {
+        if (markStopped()) {
+            if (context != null) {
+                context.clearStatementRecorder(this);
+
+            } else if (ACTIVE.get() == this) {
+                if (outer != null) {
+                    ACTIVE.set(outer);
+                } else {
+                    ACTIVE.remove();
+                }
+            }
+        }
+        return statements.size();
+    }
+
+    private synchronized boolean markStopped() {
+        if (stopped) {
+            return false;
+        }
+
+        stopped = true;
+        STARTED.decrementAndGet();
+        if (request) {
+            REQUESTS.remove(this);
+        }
+        return true;
+    }
+
+    public synchronized long getCount() {
+        return statements.size();
+    }
+
+    /**
+     * @return the statements recorded so far, in the order of execution
+     */
+    public synchronized List<ExecutedStatement> getStatements() {
+        return Collections.unmodifiableList(new ArrayList<>(statements));
+    }
+
+    /**
+     * Groups the recorded queries (SELECT statements) by their shape, keeping only the shapes executed more than a given
+     * number of times - typically an N+1 select problem where the ORM loads an association separately for each entity.
+     * @param maxRepeats the number of times a query shape may be executed
+     * @return the number of executions by shape of the queries executed more than <code>maxRepeats</code> times, most
+     * repeated first
+     */
+    public synchronized Map<String, Integer> getRepeatedQueries(int maxRepeats) {
+        Map<String, Integer> countByShape = new LinkedHashMap<>();
+        for (ExecutedStatement statement : statements) {
+            if (statement.isQuery()) {
+                Integer count = countByShape.get(statement.getShape());
+                countByShape.put(statement.getShape(), count == null ? 1 : count + 1);
+            }
+        }
+
+        List<Map.Entry<String, Integer>> repeated = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : countByShape.entrySet()) {
+            if (entry.getValue() > maxRepeats) {
+                repeated.add(entry);
+            }
+        }
+        Collections.sort(repeated, new Comparator<Map.Entry<String, Integer>>() {
+            @Override
+            public int compare(Map.Entry<String, Integer> e1, Map.Entry<String, Integer> e2) {
+                return e2.getValue().compareTo(e1.getValue());
+            }
+        });
+
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : repeated) {
+            result.put(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    private synchronized void record(ExecutedStatement statement) {
+        if (!stopped) {
+            statements.add(statement);
+        }
+    }
+
+    /**
+     * @return whether any recorder is started, on any thread - statements created while no recorder is started aren't
+     * instrumented at all
+     */
+    static boolean isStarted() {
+        return STARTED.get() > 0;
+    }
+
+    /**
+     * @return whether any recorder would record a statement executed on the current thread
+     */
+    static boolean isRecording() {
+        return ACTIVE.get() != null || InjectionContext.current().getStatementRecorder() != null || !REQUESTS.isEmpty();
+    }
+
+    static void statementExecuted(ExecutedStatement statement) {
+        StatementRecorder contextRecorder = InjectionContext.current().getStatementRecorder();
+        if (contextRecorder != null) {
+            contextRecorder.record(statement);
+        }
+
+        boolean handlingRequest = false;
+        for (StatementRecorder recorder = ACTIVE.get(); recorder != null; recorder = recorder.outer) {
+            recorder.record(statement);
+            handlingRequest |= recorder.request;
+        }
+
+        // Threads bound to a test are the test itself or handle its requests - other threads work for the requests
+        if (!handlingRequest && InjectionContext.current() == InjectionContext.getDefault()) {
+            for (StatementRecorder recorder : REQUESTS) {
+                recorder.record(statement);
+            }
+        }
+    }
+
+}
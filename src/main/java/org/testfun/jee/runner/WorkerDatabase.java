@@ -0,0 +1,92 @@
+package org.testfun.jee.runner;
+
+import org.apache.logging.log4j.LogManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An isolated in-memory HSQLDB database used by a single worker (test) at a time when tests are running in parallel.
+ * <p>
+ * Every database has its own JDBC connection and entity manager factory, so its schema is created according to the
+ * <code>hibernate.hbm2ddl.auto</code> setting of the persistence unit just like the shared database (replaying the
+ * {@link SchemaTemplate} instead of running hbm2ddl again when possible). Databases are
+ * pooled - a test acquires an idle database (creating a new one only if all databases are in use) and releases it
+ * when done, so the number of databases never exceeds the number of tests running concurrently.
+ */
+class WorkerDatabase {
+
+    private static final String HSQLDB_URL_PREFIX = "jdbc:hsqldb:";
+
+    private static final Queue<WorkerDatabase> IDLE = new ConcurrentLinkedQueue<>();
+
+    private static final AtomicInteger COUNT = new AtomicInteger();
+
+    static WorkerDatabase acquire() {
+        WorkerDatabase database = IDLE.poll();
+        return database != null ? database : new WorkerDatabase(COUNT.incrementAndGet());
+    }
+
+    /**
+     * @param connectionUrl the connection URL of the persistence unit
+     * @param id the ID of the worker
+     * @return the URL of an in-memory HSQLDB catalog, with the same connection properties, dedicated to the worker
+     */
+    static String getWorkerConnectionUrl(String connectionUrl, int id) {
+        if (!connectionUrl.startsWith(HSQLDB_URL_PREFIX)) {
+            throw new EjbWithMockitoRunnerException("Isolated databases for parallel tests require an HSQLDB connection URL but got: " + connectionUrl);
+        }
+
+        int propertiesStart = connectionUrl.indexOf(';');
+        String properties = propertiesStart >= 0 ? connectionUrl.substring(propertiesStart) : "";
+        return HSQLDB_URL_PREFIX + "mem:testfun_worker_" + id + properties;
+    }
+
+    private final Connection connection;
+
+    private final DataSource dataSource;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private WorkerDatabase(int id) {
+        String connectionUrl = getWorkerConnectionUrl(PersistenceXml.getInstnace().getConnectionUrl(), id);
+        try {
+            connection = SingletonDataSource.openConnection(connectionUrl);
+        } catch (SQLException e) {
+            throw new EjbWithMockitoRunnerException("Failed connecting to worker database: " + connectionUrl, e);
+        }
+
+        dataSource = SingletonDataSource.createNotClosableDataSource(connection);
+        entityManagerFactory = SchemaTemplate.getInstance().createEntityManagerFactory(connectionUrl, dataSource);
+
+        LogManager.getLogger(WorkerDatabase.class).info("Worker database initialized: " + connectionUrl);
+    }
+
+    DataSource getDataSource() {
+        return dataSource;
+    }
+
+    EntityManager createEntityManager() {
+        return entityManagerFactory.createEntityManager();
+    }
+
+    /**
+     * Rolls back anything left uncommitted and makes the database available to other workers.
+     */
+    void release() {
+        try {
+            connection.rollback();
+            IDLE.add(this);
+
+        } catch (SQLException e) {
+            LogManager.getLogger(WorkerDatabase.class).warn("Failed rolling back worker database - discarding it", e);
+        }
+    }
+
+}
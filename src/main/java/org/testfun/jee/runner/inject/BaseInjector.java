@@ -1,14 +1,13 @@
 package org.testfun.jee.runner.inject;
 
+import org.testfun.jee.runner.InjectionContext;
+
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
-import java.util.HashMap;
 import java.util.Map;
 
 public abstract class BaseInjector implements Injector {
 
-    private Map<Class, Object> instanceByClass = new HashMap<>();
-
     private MockRegistrar mockRegistrar;
 
     public BaseInjector withMocking(MockRegistrar mockRegistrar) {
@@ -18,15 +17,20 @@ public abstract class BaseInjector implements Injector {
 
     abstract Class<? extends Annotation> getAnnotation();
 
+    @Override
+    public boolean accepts(Field field) {
+        return field.isAnnotationPresent(getAnnotation());
+    }
+
     @Override
     public final <T> void inject(T target, Field field) {
-        if (field.isAnnotationPresent(getAnnotation())) {
+        if (accepts(field)) {
             doInject(target, field);
         }
     }
 
     public Object findInstanceByClass(Class<?> clazz) {
-        Object instance = instanceByClass.get(clazz);
+        Object instance = getInstanceByClass().get(clazz);
         return instance != null || mockRegistrar == null ? instance : mockRegistrar.findInstanceByClass(clazz);
     }
     abstract  <T> void doInject(T target, Field field);
@@ -34,17 +38,22 @@ public abstract class BaseInjector implements Injector {
     protected void registerByImplementedInterfaces(Object instance) {
         Class<?>[] interfaces = instance.getClass().getInterfaces();
         for (Class<?> implementedInterface : interfaces) {
-            instanceByClass.put(implementedInterface, instance);
+            getInstanceByClass().put(implementedInterface, instance);
         }
     }
 
     protected void registerByClass(Class clazz, Object instance) {
-        instanceByClass.put(clazz, instance);
+        getInstanceByClass().put(clazz, instance);
+    }
+
+    // The registered instances are kept by the current injection context so concurrent tests don't share them
+    private Map<Class, Object> getInstanceByClass() {
+        return InjectionContext.current().getRegistry(this);
     }
 
     @Override
     public void reset() {
-        instanceByClass.clear();
+        getInstanceByClass().clear();
     }
 
 }
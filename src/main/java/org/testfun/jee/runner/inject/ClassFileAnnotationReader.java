@@ -0,0 +1,174 @@
+package org.testfun.jee.runner.inject;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Reads the class-level runtime-visible annotations directly from the bytes of a class file (see JVMS chapter 4) so
+ * that classes can be filtered by annotation without being loaded by a class loader.
+ */
+class ClassFileAnnotationReader {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final String RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations";
+
+    private final Set<String> annotationDescriptors = new TreeSet<>();
+
+    @SafeVarargs
+    ClassFileAnnotationReader(Class<? extends Annotation>... annotations) {
+        for (Class<? extends Annotation> annotation : annotations) {
+            annotationDescriptors.add(toDescriptor(annotation.getName()));
+        }
+    }
+
+    /**
+     * @return a string identifying the set of annotations this reader is looking for
+     */
+    String getKey() {
+        return annotationDescriptors.toString();
+    }
+
+    static String toDescriptor(String className) {
+        return "L" + className.replace('.', '/') + ";";
+    }
+
+    /**
+     * Checks whether the class file is annotated with at least one of the annotations this reader was created with.
+     * @param classFile stream positioned at the beginning of a class file (not closed by this method)
+     * @return true if the class carries one of the annotations
+     * @throws IOException if the stream couldn't be read or isn't a valid class file
+     */
+    boolean isAnnotated(InputStream classFile) throws IOException {
+        DataInputStream in = new DataInputStream(classFile);
+
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a class file");
+        }
+        in.skipBytes(4); // minor and major versions
+
+        // Read the constant pool keeping only the UTF8 entries - these hold the attribute names and annotation descriptors
+        int constantPoolCount = in.readUnsignedShort();
+        String[] utf8 = new String[constantPoolCount];
+        boolean descriptorFound = false;
+
+        for (int i = 1; i < constantPoolCount; ++i) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1: // Utf8
+                    utf8[i] = in.readUTF();
+                    descriptorFound |= annotationDescriptors.contains(utf8[i]);
+                    break;
+                case 7: // Class
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    in.skipBytes(2);
+                    break;
+                case 15: // MethodHandle
+                    in.skipBytes(3);
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    in.skipBytes(4);
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    in.skipBytes(8);
+                    ++i; // 8 bytes constants take two entries of the constant pool
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag + " at index " + i);
+            }
+        }
+
+        // If none of the annotation descriptors appear in the constant pool, there's no need to look at the attributes
+        if (!descriptorFound) {
+            return false;
+        }
+
+        in.skipBytes(6); // access flags, this class and super class
+        in.skipBytes(2 * in.readUnsignedShort()); // interfaces
+
+        skipMembers(in); // fields
+        skipMembers(in); // methods
+
+        int attributesCount = in.readUnsignedShort();
+        for (int i = 0; i < attributesCount; ++i) {
+            String attributeName = utf8[in.readUnsignedShort()];
+            int attributeLength = in.readInt();
+
+            if (RUNTIME_VISIBLE_ANNOTATIONS.equals(attributeName)) {
+                int annotationsCount = in.readUnsignedShort();
+                for (int j = 0; j < annotationsCount; ++j) {
+                    if (annotationDescriptors.contains(utf8[in.readUnsignedShort()])) {
+                        return true;
+                    }
+                    skipElementValuePairs(in);
+                }
+                return false;
+            }
+
+            in.skipBytes(attributeLength);
+        }
+
+        return false;
+    }
+
+    private void skipMembers(DataInputStream in) throws IOException {
+        int membersCount = in.readUnsignedShort();
+        for (int i = 0; i < membersCount; ++i) {
+            in.skipBytes(6); // access flags, name and descriptor
+            skipAttributes(in);
+        }
+    }
+
+    private void skipAttributes(DataInputStream in) throws IOException {
+        int attributesCount = in.readUnsignedShort();
+        for (int i = 0; i < attributesCount; ++i) {
+            in.skipBytes(2); // name
+            in.skipBytes(in.readInt());
+        }
+    }
+
+    private void skipElementValuePairs(DataInputStream in) throws IOException {
+        int pairsCount = in.readUnsignedShort();
+        for (int i = 0; i < pairsCount; ++i) {
+            in.skipBytes(2); // element name
+            skipElementValue(in);
+        }
+    }
+
+    private void skipElementValue(DataInputStream in) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case 'e': // enum constant - type name and constant name
+                in.skipBytes(4);
+                break;
+            case '@': // nested annotation
+                in.skipBytes(2);
+                skipElementValuePairs(in);
+                break;
+            case '[': // array
+                int valuesCount = in.readUnsignedShort();
+                for (int i = 0; i < valuesCount; ++i) {
+                    skipElementValue(in);
+                }
+                break;
+            default: // primitives, strings and classes are all a single constant pool index
+                in.skipBytes(2);
+        }
+    }
+
+}
@@ -5,36 +5,86 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.testfun.jee.runner.EjbWithMockitoRunnerException;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 import static org.junit.Assert.fail;
 
+/**
+ * Scans the class path roots (directories and, if the <code>org.testfun.jee.enable_jar_scanning</code> system property
+ * is set, JAR files) in parallel using the common fork/join pool. Classes are handed to the {@link Handler}, on the
+ * calling thread, as soon as they are discovered.
+ * <p>
+ * The scanning can be restricted to some packages by setting the <code>org.testfun.jee.scan_include_packages</code>
+ * and <code>org.testfun.jee.scan_exclude_packages</code> system properties to comma separated package prefixes
+ * (see {@link PackageFilter}).
+ */
 public class ClassPathScanner {
 
     private static final Logger LOGGER = LogManager.getLogger(ClassPathScanner.class);
 
-    public List<String> getResourcesInClassPath() {
-        boolean jarScanningEnabled = Boolean.getBoolean("org.testfun.jee.enable_jar_scanning");
+    private static final String CLASS_SUFFIX = ".class";
 
-        List<String> resourceNames = new LinkedList<>();
+    // Marks the end of the class names discovered by the roots walker
+    private static final String END_OF_SCAN = "";
 
-        for (String root : getClasPathRoots()) {
-            File rootFile = new File(root);
-            if (rootFile.isDirectory())
-            if (rootFile.exists()) {
-                if (rootFile.isDirectory()) {
-                    findResourcesFromDirectory(resourceNames, rootFile.getAbsolutePath().length() + 1, rootFile);
-                } else if (jarScanningEnabled) {
-                    findResourcesFromJarFile(resourceNames, rootFile);
-                }
+    // The roots are walked by a dedicated pool - the common pool may be busy with (or be disabled by) the tests' own
+    // tasks, while the scanning thread blocks waiting for the walk
+    private static final ForkJoinPool WALKER_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private final PackageFilter packageFilter;
+
+    public ClassPathScanner() {
+        this(PackageFilter.fromSystemProperties());
+    }
+
+    /**
+     * @return a scanner of all the packages, ignoring the <code>org.testfun.jee.scan_include_packages</code> and
+     * <code>org.testfun.jee.scan_exclude_packages</code> system properties
+     */
+    public static ClassPathScanner unfiltered() {
+        return new ClassPathScanner(new PackageFilter(null, null));
+    }
+
+    ClassPathScanner(PackageFilter packageFilter) {
+        this.packageFilter = packageFilter;
+    }
+
+    public List<String> getResourcesInClassPath() {
+        final List<String> resourceNames = Collections.synchronizedList(new ArrayList<String>());
+
+        WALKER_POOL.invoke(new RootsWalker(getScannedRoots(), new RootVisitor() {
+            @Override
+            public void visitRoot(File rootFile) {
+                walkRoot(rootFile, new ResourceVisitor() {
+                    @Override
+                    public void resourceFound(String resource, ResourceContent content) {
+                        resourceNames.add(resource);
+                    }
+                });
             }
-        }
+        }));
 
         return resourceNames;
     }
@@ -44,15 +94,82 @@ public class ClassPathScanner {
         return System.getProperty("java.class.path", ".").split(pathSeparator);
     }
 
+    private List<File> getScannedRoots() {
+        boolean jarScanningEnabled = Boolean.getBoolean("org.testfun.jee.enable_jar_scanning");
+
+        List<File> roots = new ArrayList<>();
+        for (String root : getClasPathRoots()) {
+            File rootFile = new File(root);
+            if (rootFile.isDirectory() || (jarScanningEnabled && rootFile.isFile())) {
+                roots.add(rootFile);
+            }
+        }
+
+        return roots;
+    }
+
     public void scan(Handler handler) {
-        ClassLoader classLoader = getClass().getClassLoader();
+        scan(handler, null);
+    }
 
-        for (String resource : getResourcesInClassPath()) {
+    /**
+     * Scans the class path and passes to the handler only the classes annotated with (at least) one of the specified
+     * annotations. The annotations are read directly from the class files so classes that aren't annotated are never loaded.
+     * <p>
+     * When the <code>org.testfun.jee.scan_index_dir</code> system property is set, the names of the matching classes
+     * found in each class path root are stored in a {@link ScanIndex} under that directory and reused by later scans
+     * (e.g. by other forked test JVMs) as long as the root wasn't modified.
+     * @param handler handler that is invoked for each matching class
+     * @param annotations class-level annotations (with runtime retention) the handled classes must carry
+     */
+    @SafeVarargs
+    public final void scanForAnnotatedClasses(Handler handler, Class<? extends Annotation>... annotations) {
+        scan(handler, new ClassFileAnnotationReader(annotations));
+    }
 
-            try {
-                String className = resource.replace('/', '.');
-                className = className.substring(0, className.length() - 6); // Remove the ".class" suffix (6 characters) from the resource name
+    private void scan(Handler handler, final ClassFileAnnotationReader annotationReader) {
+        final ScanIndex scanIndex = annotationReader != null ? ScanIndex.fromSystemProperties() : null;
+        final BlockingQueue<String> classNames = new LinkedBlockingQueue<>();
+        final AtomicReference<Throwable> walkFailure = new AtomicReference<>();
+
+        // Walk the roots in the background, streaming the names of the discovered classes through the queue
+        final RootsWalker rootsWalker = new RootsWalker(getScannedRoots(), new RootVisitor() {
+            @Override
+            public void visitRoot(final File rootFile) {
+                if (scanIndex != null) {
+                    String key = annotationReader.getKey() + packageFilter.getKey();
+                    classNames.addAll(scanIndex.getClassNames(rootFile, key, packageFilter, new Callable<List<String>>() {
+                        @Override
+                        public List<String> call() {
+                            List<String> rootClassNames = new ArrayList<>();
+                            findClassNamesInRoot(rootFile, annotationReader, rootClassNames);
+                            return rootClassNames;
+                        }
+                    }));
+
+                } else {
+                    findClassNamesInRoot(rootFile, annotationReader, classNames);
+                }
+            }
+        });
+
+        WALKER_POOL.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    rootsWalker.invoke();
+                } catch (Throwable e) {
+                    walkFailure.set(e);
+                } finally {
+                    classNames.add(END_OF_SCAN);
+                }
+            }
+        });
 
+        // Load the classes on the calling thread so the handler doesn't have to be thread-safe
+        ClassLoader classLoader = getClass().getClassLoader();
+        for (String className = takeClassName(classNames); !END_OF_SCAN.equals(className); className = takeClassName(classNames)) {
+            try {
                 Class<?> aClass = Class.forName(className, false, classLoader);
                 handler.classFound(aClass);
 
@@ -60,53 +177,165 @@ public class ClassPathScanner {
                 if (e instanceof AssertionFailedError) {
                     fail(e.getMessage());//someone wanted this to fail...
                 }
-                LOGGER.trace("Failed determining class details for resource: " + resource, e);
+                LOGGER.trace("Failed determining class details for class: " + className, e);
             }
         }
+
+        if (walkFailure.get() != null) {
+            throw new EjbWithMockitoRunnerException("Failed scanning the class path", walkFailure.get());
+        }
+    }
+
+    private String takeClassName(BlockingQueue<String> classNames) {
+        try {
+            return classNames.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EjbWithMockitoRunnerException("Interrupted while scanning the class path", e);
+        }
+    }
+
+    private void findClassNamesInRoot(File rootFile, final ClassFileAnnotationReader annotationReader, final Collection<String> classNames) {
+        walkRoot(rootFile, new ResourceVisitor() {
+            @Override
+            public void resourceFound(String resource, ResourceContent content) {
+
+                // Only class files can be loaded as classes - skip any other resource
+                if (!resource.endsWith(CLASS_SUFFIX)) {
+                    return;
+                }
+
+                try {
+                    if (annotationReader == null || isAnnotated(annotationReader, content)) {
+                        String className = resource.replace('/', '.');
+                        className = className.substring(0, className.length() - CLASS_SUFFIX.length()); // Remove the ".class" suffix from the resource name
+                        classNames.add(className);
+                    }
+
+                } catch (Exception e) {
+                    LOGGER.trace("Failed reading class file: " + resource, e);
+                }
+            }
+        });
+    }
+
+    private boolean isAnnotated(ClassFileAnnotationReader annotationReader, ResourceContent content) throws IOException {
+        try (InputStream in = new BufferedInputStream(content.open())) {
+            return annotationReader.isAnnotated(in);
+        }
     }
 
     public static interface Handler {
         public void classFound(Class<?> aClass);
     }
 
-    private void findResourcesFromJarFile(List<String> resourceNames, File jarFile) {
-        ZipFile zipFile = null;
-        try {
-            zipFile = new ZipFile(jarFile);
+    private void walkRoot(File rootFile, ResourceVisitor visitor) {
+        if (rootFile.isDirectory()) {
+            findResourcesFromDirectory(rootFile.toPath(), visitor);
+        } else {
+            findResourcesFromJarFile(rootFile, visitor);
+        }
+    }
+
+    private void findResourcesFromJarFile(File jarFile, ResourceVisitor visitor) {
+        // Opening the JAR as a zip file reads its central directory, without inflating any of the entries
+        try (final ZipFile zipFile = new ZipFile(jarFile)) {
 
             Enumeration<? extends ZipEntry> zipFileEntries = zipFile.entries();
             while (zipFileEntries.hasMoreElements()) {
+                final ZipEntry entry = zipFileEntries.nextElement();
 
-                String fileName = zipFileEntries.nextElement().getName();
-                resourceNames.add(fileName);
+                if (!entry.isDirectory() && packageFilter.accepts(entry.getName())) {
+                    visitor.resourceFound(entry.getName(), new ResourceContent() {
+                        @Override
+                        public InputStream open() throws IOException {
+                            return zipFile.getInputStream(entry);
+                        }
+                    });
+                }
             }
 
-        } catch (Exception e) {
+        } catch (IOException e) {
             throw new EjbWithMockitoRunnerException("Failed finding resources in JAR: " + jarFile, e);
+        }
+    }
 
-        } finally {
-            if (zipFile != null) {
-                try {
-                    zipFile.close();
-                } catch (IOException e) {
-                    LOGGER.warn("Failed closing a resource", e);
+    private void findResourcesFromDirectory(final Path root, final ResourceVisitor visitor) {
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (!dir.equals(root) && !packageFilter.mayContain(getResourceName(dir))) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
                 }
-            }
+
+                @Override
+                public FileVisitResult visitFile(final Path file, BasicFileAttributes attrs) {
+                    String resourceName = getResourceName(file);
+                    if (packageFilter.accepts(resourceName)) {
+                        visitor.resourceFound(resourceName, new ResourceContent() {
+                            @Override
+                            public InputStream open() throws IOException {
+                                return Files.newInputStream(file);
+                            }
+                        });
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    LOGGER.trace("Failed visiting file: " + file, e);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                private String getResourceName(Path path) {
+                    return root.relativize(path).toString().replace('\\', '/');
+                }
+            });
+
+        } catch (IOException e) {
+            throw new EjbWithMockitoRunnerException("Failed finding resources in directory: " + root, e);
         }
     }
 
-    private void findResourcesFromDirectory(List<String> resourceNames, int rootLength, File directory) {
-        File[] fileList = directory.listFiles();
-        if (fileList != null) {
-            for (File file : fileList) {
+    private interface RootVisitor {
+        void visitRoot(File rootFile);
+    }
 
-                if (file.isDirectory()) {
-                    findResourcesFromDirectory(resourceNames, rootLength, file);
+    private interface ResourceVisitor {
+        void resourceFound(String resource, ResourceContent content);
+    }
 
-                } else {
-                    String fileName = file.getAbsolutePath().substring(rootLength).replace('\\', '/');
-                    resourceNames.add(fileName);
-                }
+    private interface ResourceContent {
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * Visits the class path roots in parallel by recursively splitting them between fork/join tasks.
+     */
+    private static class RootsWalker extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<File> roots;
+        private final RootVisitor visitor;
+
+        private RootsWalker(List<File> roots, RootVisitor visitor) {
+            this.roots = roots;
+            this.visitor = visitor;
+        }
+
+        @Override
+        protected void compute() {
+            if (roots.size() == 1) {
+                visitor.visitRoot(roots.get(0));
+
+            } else if (roots.size() > 1) {
+                int middle = roots.size() / 2;
+                invokeAll(new RootsWalker(roots.subList(0, middle), visitor), new RootsWalker(roots.subList(middle, roots.size()), visitor));
             }
         }
     }
@@ -0,0 +1,86 @@
+package org.testfun.jee.runner.inject;
+
+import org.testfun.jee.runner.EjbWithMockitoRunnerException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The compile-time EJB index written by {@link EjbIndexProcessor}.
+ * <p>
+ * The index is a text file with a line per bean holding the bean's class name followed by the names of the interfaces
+ * it implements, all separated by spaces. Empty lines and lines starting with '#' are ignored.
+ */
+public class EjbIndex {
+
+    public static final String LOCATION = "META-INF/testfun/ejb-index";
+
+    private EjbIndex() { }
+
+    /**
+     * Reads and merges all the EJB indexes found in the class path.
+     * @param classLoader class loader used for finding the indexes
+     * @return the implemented interfaces by bean class name, or null if the class path has no index
+     */
+    public static Map<String, Set<String>> load(ClassLoader classLoader) {
+        try {
+            Enumeration<URL> indexes = classLoader.getResources(LOCATION);
+            if (!indexes.hasMoreElements()) {
+                return null;
+            }
+
+            Map<String, Set<String>> interfacesByBean = new LinkedHashMap<>();
+            while (indexes.hasMoreElements()) {
+                URL index = indexes.nextElement();
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(index.openStream(), StandardCharsets.UTF_8))) {
+                    interfacesByBean.putAll(parse(reader));
+                }
+            }
+
+            return interfacesByBean;
+
+        } catch (IOException e) {
+            throw new EjbWithMockitoRunnerException("Failed reading EJB index", e);
+        }
+    }
+
+    static Map<String, Set<String>> parse(BufferedReader reader) throws IOException {
+        Map<String, Set<String>> interfacesByBean = new LinkedHashMap<>();
+
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            String[] names = line.split("\\s+");
+            interfacesByBean.put(names[0], new LinkedHashSet<>(Arrays.asList(names).subList(1, names.length)));
+        }
+
+        return interfacesByBean;
+    }
+
+    static void write(Writer writer, Map<String, Set<String>> interfacesByBean) throws IOException {
+        writer.write("# Generated by " + EjbIndexProcessor.class.getName() + "\n");
+
+        for (Map.Entry<String, Set<String>> entry : interfacesByBean.entrySet()) {
+            writer.write(entry.getKey());
+            for (String implementedInterface : entry.getValue()) {
+                writer.write(' ');
+                writer.write(implementedInterface);
+            }
+            writer.write('\n');
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+package org.testfun.jee.runner.inject;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * An annotation processor that writes the {@value EjbIndex#LOCATION} index listing every <code>@Stateless</code> and
+ * <code>@Singleton</code> bean compiled along with the interfaces it implements. When such indexes are found in the
+ * class path, {@link EjbInstanceFactory} uses them instead of scanning the class path.
+ * <p>
+ * The processor isn't registered as a service so it doesn't run unless explicitly configured, e.g.:
+ * <pre>{@code
+ * <plugin>
+ *     <artifactId>maven-compiler-plugin</artifactId>
+ *     <configuration>
+ *         <annotationProcessorPaths>
+ *             <path>
+ *                 <groupId>org.testfun</groupId>
+ *                 <artifactId>jee</artifactId>
+ *                 <version>...</version>
+ *             </path>
+ *         </annotationProcessorPaths>
+ *         <annotationProcessors>
+ *             <annotationProcessor>org.testfun.jee.runner.inject.EjbIndexProcessor</annotationProcessor>
+ *         </annotationProcessors>
+ *     </configuration>
+ * </plugin>
+ * }</pre>
+ */
+@SupportedAnnotationTypes({"javax.ejb.Stateless", "javax.ejb.Singleton"})
+public class EjbIndexProcessor extends AbstractProcessor {
+
+    private final Map<String, Set<String>> interfacesByBean = new TreeMap<>();
+
+    private boolean existingIndexRead;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (!existingIndexRead) {
+            readExistingIndex();
+            existingIndexRead = true;
+        }
+
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.CLASS) {
+                    TypeElement bean = (TypeElement) element;
+
+                    Set<String> interfaces = new LinkedHashSet<>();
+                    for (TypeMirror implementedInterface : bean.getInterfaces()) {
+                        interfaces.add(getBinaryName((TypeElement) ((DeclaredType) implementedInterface).asElement()));
+                    }
+
+                    interfacesByBean.put(getBinaryName(bean), interfaces);
+                }
+            }
+        }
+
+        if (roundEnv.processingOver()) {
+            writeIndex();
+        }
+
+        return false;
+    }
+
+    private String getBinaryName(TypeElement typeElement) {
+        return processingEnv.getElementUtils().getBinaryName(typeElement).toString();
+    }
+
+    /**
+     * On incremental compilation only the modified beans are processed, so the index written by the previous
+     * compilation is merged with the processed beans (dropping beans that no longer exist).
+     */
+    private void readExistingIndex() {
+        try {
+            FileObject existing = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", EjbIndex.LOCATION);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(existing.openInputStream(), StandardCharsets.UTF_8))) {
+                for (Map.Entry<String, Set<String>> entry : EjbIndex.parse(reader).entrySet()) {
+                    if (processingEnv.getElementUtils().getTypeElement(entry.getKey().replace('$', '.')) != null) {
+                        interfacesByBean.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            // First compilation - there's no existing index
+
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "Ignoring existing EJB index: " + e);
+        }
+    }
+
+    private void writeIndex() {
+        if (interfacesByBean.isEmpty()) {
+            return;
+        }
+
+        try {
+            FileObject index = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", EjbIndex.LOCATION);
+            try (Writer writer = new OutputStreamWriter(index.openOutputStream(), StandardCharsets.UTF_8)) {
+                EjbIndex.write(writer, interfacesByBean);
+            }
+
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed writing EJB index: " + e);
+        }
+    }
+
+}
@@ -75,7 +75,17 @@ public class EjbInjector extends BaseInjector {
         // Try to instantiate an implementation of the singleton
         Object singleton = EjbInstanceFactory.getInstance().newInstance(fieldClass);
 
-        registerByClass(fieldClass, singleton);
+        // A stateless session bean injected by its class is wrapped with a transaction by a subclass proxy (if possible) -
+        // the injected instance must remain assignable to the field, even if the bean implements interfaces
+        Object ejb = singleton;
+        if (fieldClass.getAnnotation(Stateless.class) != null && !fieldClass.isInterface()) {
+            ejb = TransactionalProxyFactory.getInstance().newSubclassProxy(singleton);
+            if (!fieldClass.isInstance(ejb)) {
+                ejb = singleton;
+            }
+        }
+
+        registerByClass(fieldClass, ejb);
 
         // Inject dependencies into the new EJB
         DependencyInjector.getInstance().injectDependencies(singleton);
@@ -92,7 +102,7 @@ public class EjbInjector extends BaseInjector {
             }
         }
 
-        return singleton;
+        return ejb;
     }
 
 }
@@ -1,21 +1,27 @@
 package org.testfun.jee.runner.inject;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.testfun.jee.runner.EjbWithMockitoRunnerException;
 
 import javax.ejb.Singleton;
 import javax.ejb.Stateless;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 public class EjbInstanceFactory {
 
+    private static final Logger LOGGER = LogManager.getLogger(EjbInstanceFactory.class);
+
     private static final EjbInstanceFactory INSTANCE = new EjbInstanceFactory();
 
     public static EjbInstanceFactory getInstance() {
         return INSTANCE;
     }
 
-    private Map<Class, Class> ejbClassByImplementedInterface;
+    private volatile Map<Class, Class> ejbClassByImplementedInterface;
 
     private EjbInstanceFactory() { }
 
@@ -35,37 +41,71 @@ public class EjbInstanceFactory {
 
     private Map<Class, Class> getEjbClassByImplementedInterface() {
         if (ejbClassByImplementedInterface == null) {
-            ejbClassByImplementedInterface = new HashMap<>();
-
-            ClassPathScanner classPathScanner = new ClassPathScanner();
-            classPathScanner.scan(new ClassPathScanner.Handler() {
-                @Override
-                public void classFound(Class<?> aClass) {
-                    if (!aClass.isInterface()) {
-
-                        // If the class is annotated with @Stateless, register all the implemented interfaces
-                        if (aClass.getAnnotation(Stateless.class) != null) {
-                            for (Class<?> implementedInterface : aClass.getInterfaces()) {
-                                ejbClassByImplementedInterface.put(implementedInterface, aClass);
-                            }
-
-                            // Also, register the stateless as if it implements itself so the factory will work for SLSB that doesn't implement any interface.
-                            ejbClassByImplementedInterface.put(aClass, aClass);
-                        }
-
-                        // If the class is annotated with @Singleton then register the singleton as if it implements "itself" -
-                        // this will allow users to get the "implementing class" of the singleton
-                        else if (aClass.getAnnotation(Singleton.class) != null) {
-                            for (Class<?> implementedInterface : aClass.getInterfaces()) {
-                                ejbClassByImplementedInterface.put(implementedInterface, aClass);
-                            }
-                            ejbClassByImplementedInterface.put(aClass, aClass);
-                        }
+            synchronized (this) {
+                if (ejbClassByImplementedInterface == null) {
+                    Map<Class, Class> ejbClassByImplementedInterface = new HashMap<>();
+
+                    // Prefer the compile-time indexes and scan the class path only if none was found
+                    Map<String, Set<String>> interfacesByBean = EjbIndex.load(getClass().getClassLoader());
+                    if (interfacesByBean != null) {
+                        registerIndexedEjbs(ejbClassByImplementedInterface, interfacesByBean);
+                    } else {
+                        scanForEjbs(ejbClassByImplementedInterface);
                     }
+
+                    // Publish the map only once complete - it is never modified afterwards
+                    this.ejbClassByImplementedInterface = Collections.unmodifiableMap(ejbClassByImplementedInterface);
                 }
-            });
+            }
         }
 
         return ejbClassByImplementedInterface;
     }
+
+    private void registerIndexedEjbs(Map<Class, Class> ejbClassByImplementedInterface, Map<String, Set<String>> interfacesByBean) {
+        ClassLoader classLoader = getClass().getClassLoader();
+
+        for (Map.Entry<String, Set<String>> entry : interfacesByBean.entrySet()) {
+            try {
+                Class<?> aClass = Class.forName(entry.getKey(), false, classLoader);
+                for (String implementedInterface : entry.getValue()) {
+                    ejbClassByImplementedInterface.put(Class.forName(implementedInterface, false, classLoader), aClass);
+                }
+                ejbClassByImplementedInterface.put(aClass, aClass);
+
+            } catch (ClassNotFoundException | LinkageError e) {
+                LOGGER.warn("Ignoring EJB listed in " + EjbIndex.LOCATION + ": " + entry.getKey(), e);
+            }
+        }
+    }
+
+    private void scanForEjbs(final Map<Class, Class> ejbClassByImplementedInterface) {
+        ClassPathScanner classPathScanner = new ClassPathScanner();
+        classPathScanner.scanForAnnotatedClasses(new ClassPathScanner.Handler() {
+            @Override
+            public void classFound(Class<?> aClass) {
+                if (!aClass.isInterface()) {
+
+                    // If the class is annotated with @Stateless, register all the implemented interfaces
+                    if (aClass.getAnnotation(Stateless.class) != null) {
+                        for (Class<?> implementedInterface : aClass.getInterfaces()) {
+                            ejbClassByImplementedInterface.put(implementedInterface, aClass);
+                        }
+
+                        // Also, register the stateless as if it implements itself so the factory will work for SLSB that doesn't implement any interface.
+                        ejbClassByImplementedInterface.put(aClass, aClass);
+                    }
+
+                    // If the class is annotated with @Singleton then register the singleton as if it implements "itself" -
+                    // this will allow users to get the "implementing class" of the singleton
+                    else if (aClass.getAnnotation(Singleton.class) != null) {
+                        for (Class<?> implementedInterface : aClass.getInterfaces()) {
+                            ejbClassByImplementedInterface.put(implementedInterface, aClass);
+                        }
+                        ejbClassByImplementedInterface.put(aClass, aClass);
+                    }
+                }
+            }
+        }, Stateless.class, Singleton.class);
+    }
 }
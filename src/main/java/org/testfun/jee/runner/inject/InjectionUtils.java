@@ -2,10 +2,18 @@ package org.testfun.jee.runner.inject;
 
 import org.testfun.jee.runner.EjbWithMockitoRunnerException;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class InjectionUtils {
 
+    private static final ConcurrentMap<Field, FieldAccessor> FIELD_ACCESSORS = new ConcurrentHashMap<>();
+
     public static <T> Class<?> getFieldInterface(T target, Field field) {
         Class<?> fieldClass = field.getType();
         if (!fieldClass.isInterface()) {
@@ -15,30 +23,31 @@ public class InjectionUtils {
     }
 
     public static <T> void assignObjectToField(T target, Field field, Object value) {
-        boolean fieldAccessible = field.isAccessible();
-        field.setAccessible(true);
         try {
-            field.set(target, value);
-        } catch (Exception e) {
+            getFieldAccessor(field).setter.invokeExact((Object) target, value);
+        } catch (Throwable e) {
             throw new EjbWithMockitoRunnerException("Failed injecting to " + getFieldDescription(field, target), e);
-        } finally {
-            field.setAccessible(fieldAccessible);
         }
     }
 
     @SuppressWarnings("unchecked")
     public static <T,O> O readObjectFromField(T target, Field field) {
-        boolean fieldAccessible = field.isAccessible();
-        field.setAccessible(true);
         try {
-            return (O) field.get(target);
-        } catch (Exception e) {
+            return (O) getFieldAccessor(field).getter.invokeExact((Object) target);
+        } catch (Throwable e) {
             throw new EjbWithMockitoRunnerException("Failed to read from " + getFieldDescription(field, target), e);
-        } finally {
-            field.setAccessible(fieldAccessible);
         }
     }
 
+    private static FieldAccessor getFieldAccessor(Field field) throws ReflectiveOperationException {
+        FieldAccessor fieldAccessor = FIELD_ACCESSORS.get(field);
+        if (fieldAccessor == null) {
+            fieldAccessor = new FieldAccessor(field);
+            FIELD_ACCESSORS.putIfAbsent(field, fieldAccessor);
+        }
+        return fieldAccessor;
+    }
+
     public static <T> String getFieldDescription(Field field, T target) {
         Class<?> targetClass = target.getClass();
         Class<?> fieldDeclaringClass = field.getDeclaringClass();
@@ -50,4 +59,36 @@ public class InjectionUtils {
         }
     }
 
+    /**
+     * Method handles for reading and writing a field, resolved once per field so that access checks aren't repeated
+     * on every injection and the accessibility of the caller's {@link Field} instance is never modified.
+     */
+    private static class FieldAccessor {
+
+        private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+        private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+        private final MethodHandle setter;
+        private final MethodHandle getter;
+
+        private FieldAccessor(Field field) throws ReflectiveOperationException {
+            // Work on a private copy of the field so that making it accessible doesn't affect other users of the field
+            Field accessibleField = field.getDeclaringClass().getDeclaredField(field.getName());
+            accessibleField.setAccessible(true);
+
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle fieldSetter = lookup.unreflectSetter(accessibleField);
+            MethodHandle fieldGetter = lookup.unreflectGetter(accessibleField);
+
+            // Handles of static fields don't take the target as an argument - ignore it
+            if (Modifier.isStatic(field.getModifiers())) {
+                fieldSetter = MethodHandles.dropArguments(fieldSetter, 0, Object.class);
+                fieldGetter = MethodHandles.dropArguments(fieldGetter, 0, Object.class);
+            }
+
+            setter = fieldSetter.asType(SETTER_TYPE);
+            getter = fieldGetter.asType(GETTER_TYPE);
+        }
+    }
+
 }
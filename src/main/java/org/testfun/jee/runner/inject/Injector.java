@@ -3,6 +3,19 @@ package org.testfun.jee.runner.inject;
 import java.lang.reflect.Field;
 
 public interface Injector {
+
+    /**
+     * Used for planning the injections into a class once - {@link #inject(Object, Field)} is called only for the fields
+     * accepted by the injector. Injectors which don't override this method are called for every field and are expected
+     * to ignore the fields they don't handle.
+     * @param field a field of the class to inject into
+     * @return true if the injector may inject a value into the field
+     */
+    default boolean accepts(Field field) {
+        return true;
+    }
+
     <T> void inject(T target, Field field);
+
     void reset();
 }
@@ -0,0 +1,100 @@
+package org.testfun.jee.runner.inject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Restricts the class path scanning to resources in (or out of) a set of packages. Packages are given as prefixes,
+ * e.g. <code>com.ourco</code> (or <code>com.ourco.**</code>), and match the package itself as well as all its
+ * sub-packages. When no package is included, everything that isn't excluded is accepted.
+ */
+class PackageFilter {
+
+    private final List<String> includedPaths;
+    private final List<String> excludedPaths;
+
+    static PackageFilter fromSystemProperties() {
+        return new PackageFilter(
+                System.getProperty("org.testfun.jee.scan_include_packages"),
+                System.getProperty("org.testfun.jee.scan_exclude_packages"));
+    }
+
+    /**
+     * @param includedPackages comma separated packages to include, or null to include all packages
+     * @param excludedPackages comma separated packages to exclude, or null to exclude none
+     */
+    PackageFilter(String includedPackages, String excludedPackages) {
+        includedPaths = toPaths(includedPackages);
+        excludedPaths = toPaths(excludedPackages);
+    }
+
+    private static List<String> toPaths(String packages) {
+        if (packages == null || packages.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<String> paths = new ArrayList<>();
+        for (String aPackage : packages.split(",")) {
+            aPackage = aPackage.trim();
+            if (aPackage.endsWith(".**")) {
+                aPackage = aPackage.substring(0, aPackage.length() - 3);
+            } else if (aPackage.endsWith(".*")) {
+                aPackage = aPackage.substring(0, aPackage.length() - 2);
+            }
+
+            if (!aPackage.isEmpty()) {
+                paths.add(aPackage.replace('.', '/') + "/");
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * @param resource resource name, e.g. <code>com/ourco/SomeBean.class</code>
+     * @return true if the resource should be scanned
+     */
+    boolean accepts(String resource) {
+        return isIncluded(resource, false) && !isExcluded(resource);
+    }
+
+    /**
+     * @param directory directory name relative to the class path root, e.g. <code>com/ourco</code>
+     * @return true if the directory may contain resources that should be scanned
+     */
+    boolean mayContain(String directory) {
+        String directoryPath = directory + "/";
+        return isIncluded(directoryPath, true) && !isExcluded(directoryPath);
+    }
+
+    /**
+     * @return a string identifying the filter's configuration
+     */
+    String getKey() {
+        return "+" + includedPaths + "-" + excludedPaths;
+    }
+
+    private boolean isIncluded(String path, boolean directory) {
+        if (includedPaths.isEmpty()) {
+            return true;
+        }
+
+        for (String includedPath : includedPaths) {
+            // A directory must also be visited if it is the parent of an included package
+            if (path.startsWith(includedPath) || (directory && includedPath.startsWith(path))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isExcluded(String path) {
+        for (String excludedPath : excludedPaths) {
+            if (path.startsWith(excludedPath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
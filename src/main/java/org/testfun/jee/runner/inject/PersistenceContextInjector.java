@@ -10,9 +10,14 @@ import java.lang.reflect.Field;
 // Inject an entityManager to @PersistenceContext annotated member variables
 public class PersistenceContextInjector implements Injector {
 
+    @Override
+    public boolean accepts(Field field) {
+        return field.isAnnotationPresent(PersistenceContext.class);
+    }
+
     @Override
     public <T> void inject(T target, Field field) {
-        if (field.isAnnotationPresent(PersistenceContext.class)) {
+        if (accepts(field)) {
 
             // Make sure the field is of EntityManager interface
             Class<?> fieldClass = InjectionUtils.getFieldInterface(target, field);
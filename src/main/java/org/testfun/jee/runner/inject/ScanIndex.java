@@ -0,0 +1,251 @@
+package org.testfun.jee.runner.inject;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testfun.jee.runner.EjbWithMockitoRunnerException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An on-disk index of the classes found by {@link ClassPathScanner} in each class path root. The index is shared by
+ * all the JVMs configured with the same index directory (e.g. the forks of a single surefire execution).
+ * <p>
+ * Each root (directory or JAR) has its own index file, named after the root's path and the scanned annotations. The
+ * index file holds a fingerprint of the root - the size and modification time of a JAR file or of the class files
+ * under a directory in the scanned packages - and is ignored (and rebuilt) if the root was changed since the index was
+ * written. Fingerprinting a directory reads only the attributes the directory walk returns anyway (a single stat per
+ * entry), skipping the packages that aren't scanned, and never opens the class files the scan itself reads.
+ * <p>
+ * Index files are memory-mapped when read. They are written to a temporary file which is atomically renamed once
+ * complete, while an exclusive file lock prevents concurrent JVMs from rebuilding the same index at the same time.
+ */
+class ScanIndex {
+
+    private static final Logger LOGGER = LogManager.getLogger(ScanIndex.class);
+
+    private static final int MAGIC = 0x7E57F00D;
+    private static final int VERSION = 1;
+
+    private static final ConcurrentMap<String, Object> THREAD_LOCKS = new ConcurrentHashMap<>();
+
+    private final File directory;
+
+    static ScanIndex fromSystemProperties() {
+        String directory = System.getProperty("org.testfun.jee.scan_index_dir");
+        return directory == null || directory.trim().isEmpty() ? null : new ScanIndex(new File(directory));
+    }
+
+    ScanIndex(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Gets the class names found in a class path root, either from the index or by scanning the root (in which case
+     * the index is updated).
+     * @param root class path root (directory or JAR file)
+     * @param key identifies the kind of scan performed by the scanner (e.g. the annotations and packages being searched)
+     * @param packageFilter the packages scanned by the scanner - changes to other packages don't invalidate the index
+     * @param scanner scans the root when the index is missing or stale
+     * @return the class names found in the root
+     */
+    List<String> getClassNames(File root, String key, PackageFilter packageFilter, Callable<List<String>> scanner) {
+        File indexFile = new File(directory, indexFileName(root, key));
+
+        // File locks are held by the whole JVM, so threads of the same JVM must not lock the same index concurrently
+        synchronized (getThreadLock(indexFile)) {
+            return getClassNames(root, indexFile, packageFilter, scanner);
+        }
+    }
+
+    private Object getThreadLock(File indexFile) {
+        Object lock = THREAD_LOCKS.putIfAbsent(indexFile.getAbsolutePath(), new Object());
+        return lock != null ? lock : THREAD_LOCKS.get(indexFile.getAbsolutePath());
+    }
+
+    private List<String> getClassNames(File root, File indexFile, PackageFilter packageFilter, Callable<List<String>> scanner) {
+        long fingerprint = fingerprint(root, packageFilter);
+
+        List<String> classNames = read(indexFile, fingerprint);
+        if (classNames != null) {
+            return classNames;
+        }
+
+        try {
+            Files.createDirectories(directory.toPath());
+
+            // Lock the index so only one JVM scans the root while the others wait for its result
+            try (FileChannel lockChannel = FileChannel.open(new File(directory, indexFile.getName() + ".lock").toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock ignored = lockChannel.lock()) {
+
+                // The index may have been written by another JVM while waiting for the lock
+                classNames = read(indexFile, fingerprint);
+                if (classNames == null) {
+                    classNames = scanner.call();
+                    write(indexFile, fingerprint, classNames);
+                }
+            }
+
+        } catch (Exception e) {
+            throw new EjbWithMockitoRunnerException("Failed updating class path scan index " + indexFile, e);
+        }
+
+        return classNames;
+    }
+
+    private List<String> read(File indexFile, long fingerprint) {
+        if (!indexFile.isFile()) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != fingerprint) {
+                LOGGER.debug("Class path scan index is stale: " + indexFile);
+                return null;
+            }
+
+            int count = buffer.getInt();
+            List<String> classNames = new ArrayList<>(count);
+            for (int i = 0; i < count; ++i) {
+                byte[] name = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(name);
+                classNames.add(new String(name, StandardCharsets.UTF_8));
+            }
+
+            return classNames;
+
+        } catch (IOException | BufferUnderflowException e) {
+            LOGGER.warn("Failed reading class path scan index " + indexFile + " - ignoring it", e);
+            return null;
+        }
+    }
+
+    private void write(File indexFile, long fingerprint, List<String> classNames) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(fingerprint);
+        out.writeInt(classNames.size());
+        for (String className : classNames) {
+            byte[] name = className.getBytes(StandardCharsets.UTF_8);
+            out.writeShort(name.length);
+            out.write(name);
+        }
+        out.flush();
+
+        // Write to a temporary file and rename it so readers never see a partially written index
+        Path tempFile = Files.createTempFile(directory.toPath(), indexFile.getName(), ".tmp");
+        try {
+            Files.write(tempFile, bytes.toByteArray());
+            Files.move(tempFile, indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private String indexFileName(File root, String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(root.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+            digest.update(key.getBytes(StandardCharsets.UTF_8));
+
+            StringBuilder name = new StringBuilder(root.getName()).append('-');
+            for (byte b : digest.digest()) {
+                name.append(String.format("%02x", b));
+            }
+            return name.append(".idx").toString();
+
+        } catch (NoSuchAlgorithmException e) {
+            throw new EjbWithMockitoRunnerException("SHA-1 isn't supported", e);
+        }
+    }
+
+    static long fingerprint(File root, PackageFilter packageFilter) {
+        if (root.isDirectory()) {
+            return fingerprintDirectory(root.toPath(), packageFilter);
+        } else {
+            return fingerprintFile(17, root.getAbsolutePath(), root.length(), root.lastModified());
+        }
+    }
+
+    private static long fingerprintDirectory(final Path root, final PackageFilter packageFilter) {
+        final long[] fingerprint = {17};
+        try {
+            // Visits the same files as the scanner does - the walk passes their attributes without extra system calls
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (!dir.equals(root) && !packageFilter.mayContain(getResourceName(dir))) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    String resourceName = getResourceName(file);
+                    if (resourceName.endsWith(".class") && packageFilter.accepts(resourceName)) {
+                        fingerprint[0] = fingerprintFile(fingerprint[0], resourceName, attrs.size(), attrs.lastModifiedTime().toMillis());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+
+                private String getResourceName(Path path) {
+                    return root.relativize(path).toString().replace('\\', '/');
+                }
+            });
+
+        } catch (IOException e) {
+            throw new EjbWithMockitoRunnerException("Failed fingerprinting directory: " + root, e);
+        }
+        return fingerprint[0];
+    }
+
+    private static long fingerprintFile(long fingerprint, String name, long size, long lastModified) {
+        // Combine with addition so the fingerprint doesn't depend on the order in which files are listed
+        long fileHash = name.hashCode();
+        fileHash = fileHash * 31 + size;
+        fileHash = fileHash * 31 + lastModified;
+        return fingerprint + mix(fileHash);
+    }
+
+    private static long mix(long hash) {
+        // The 64 bits finalizer of MurmurHash3
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+}
@@ -14,6 +14,13 @@ public class TransactionUtils {
 
     public static Object wrapEjbWithTransaction(Object impl) {
         Assert.assertNotNull("EJB Implementation is null", impl);
+
+        // Prefer a generated proxy class which invokes the EJB directly, falling back to a reflection based proxy
+        Object proxy = TransactionalProxyFactory.getInstance().newProxy(impl);
+        if (proxy != null) {
+            return proxy;
+        }
+
         Class<?>[] interfaces = impl.getClass().getInterfaces();
 
         return Proxy.newProxyInstance(TransactionUtils.class.getClassLoader(), interfaces, new TransactionalMethodWrapper(impl));
@@ -37,6 +44,18 @@ public class TransactionUtils {
         }
     }
 
+    /**
+     * Flag the current transaction for rollback if the failure isn't an application exception (or is an application
+     * exception that requires rollback).
+     */
+    public static void rollbackTransaction(Throwable failure) {
+        ApplicationException applicationException = failure.getClass().getAnnotation(ApplicationException.class);
+
+        if (applicationException == null || applicationException.rollback()) {
+            rollbackTransaction();
+        }
+    }
+
     public static void endTransaction(boolean newTransaction) {
         EntityTransaction tx = getTransaction();
         if (tx.isActive() && newTransaction) {
@@ -73,13 +92,7 @@ public class TransactionUtils {
             } catch (Throwable throwable) {
 
                 if (throwable instanceof InvocationTargetException) {
-                    InvocationTargetException invocationTargetException = (InvocationTargetException) throwable;
-
-                    ApplicationException applicationException = invocationTargetException.getTargetException().getClass().getAnnotation(ApplicationException.class);
-
-                    if (applicationException == null || applicationException.rollback()) {
-                        rollbackTransaction();
-                    }
+                    rollbackTransaction(((InvocationTargetException) throwable).getTargetException());
 
                 } else {
                     rollbackTransaction();
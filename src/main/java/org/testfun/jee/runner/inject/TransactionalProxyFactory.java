@@ -0,0 +1,189 @@
+package org.testfun.jee.runner.inject;
+
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.ClassFileVersion;
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import net.bytebuddy.implementation.MethodCall;
+import net.bytebuddy.matcher.ElementMatcher;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.objenesis.Objenesis;
+import org.objenesis.ObjenesisStd;
+import org.objenesis.instantiator.ObjectInstantiator;
+import org.testfun.jee.runner.EjbWithMockitoRunnerException;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static net.bytebuddy.matcher.ElementMatchers.*;
+
+/**
+ * Generates (once per EJB class) a proxy class that wraps every business method of the EJB with a transaction and
+ * invokes the method directly on the EJB instance - no reflection, argument arrays or exception wrapping are involved.
+ * <p>
+ * If the EJB implements interfaces, the proxy implements the same interfaces. Otherwise (a no-interface view), or when
+ * the EJB is injected by its class, the proxy is a subclass of the EJB's class that overrides all its methods - it is
+ * instantiated without invoking the EJB's constructor. EJB classes whose methods can't all be overridden (final classes
+ * or classes with final methods) can't be proxied by a subclass.
+ */
+class TransactionalProxyFactory {
+
+    private static final Logger LOGGER = LogManager.getLogger(TransactionalProxyFactory.class);
+
+    private static final String DELEGATE_FIELD = "testfun$delegate";
+
+    // Instantiates proxies without invoking the constructor of the proxied EJB class (which already ran for the EJB)
+    private static final Objenesis OBJENESIS = new ObjenesisStd(false);
+
+    private static final TransactionalProxyFactory INSTANCE = new TransactionalProxyFactory();
+
+    static TransactionalProxyFactory getInstance() {
+        return INSTANCE;
+    }
+
+    private final ConcurrentMap<Class<?>, ProxyClass> proxyClassByEjbClass = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Class<?>, ProxyClass> subclassProxyClassByEjbClass = new ConcurrentHashMap<>();
+
+    private TransactionalProxyFactory() { }
+
+    /**
+     * @param ejb the EJB instance
+     * @return a transactional proxy of the EJB, or null if a proxy class couldn't be generated for the EJB's class
+     */
+    Object newProxy(Object ejb) {
+        return newProxy(ejb, ejb.getClass().getInterfaces().length == 0);
+    }
+
+    /**
+     * @param ejb the EJB instance
+     * @return a transactional proxy of the EJB which is an instance of the EJB's class (e.g. for injecting the EJB by
+     * its class), or null if such a proxy class couldn't be generated for the EJB's class
+     */
+    Object newSubclassProxy(Object ejb) {
+        return newProxy(ejb, true);
+    }
+
+    private Object newProxy(Object ejb, boolean subclass) {
+        ProxyClass proxyClass = getProxyClass(ejb.getClass(), subclass);
+        if (proxyClass == null) {
+            return null;
+        }
+
+        try {
+            Object proxy = proxyClass.instantiator.newInstance();
+            InjectionUtils.assignObjectToField(proxy, proxyClass.delegateField, ejb);
+            return proxy;
+
+        } catch (RuntimeException e) {
+            throw new EjbWithMockitoRunnerException("Failed instantiating transactional proxy of " + ejb.getClass(), e);
+        }
+    }
+
+    private ProxyClass getProxyClass(Class<?> ejbClass, boolean subclass) {
+        ConcurrentMap<Class<?>, ProxyClass> proxyClasses = subclass ? subclassProxyClassByEjbClass : proxyClassByEjbClass;
+        ProxyClass proxyClass = proxyClasses.get(ejbClass);
+        if (proxyClass == null) {
+            synchronized (this) {
+                proxyClass = proxyClasses.get(ejbClass);
+                if (proxyClass == null) {
+                    proxyClass = generateProxyClass(ejbClass, subclass);
+                    proxyClasses.put(ejbClass, proxyClass);
+                }
+            }
+        }
+
+        return proxyClass.type != null ? proxyClass : null;
+    }
+
+    private ProxyClass generateProxyClass(Class<?> ejbClass, boolean subclass) {
+        if (subclass && Modifier.isFinal(ejbClass.getModifiers())) {
+            LOGGER.warn("Can't generate a transactional proxy for final class " + ejbClass + " - its methods are invoked without a transaction");
+            return new ProxyClass(null);
+        }
+
+        // A final method would run on the proxy itself, whose fields are never injected
+        Method finalMethod = subclass ? findFinalMethod(ejbClass) : null;
+        if (finalMethod != null) {
+            LOGGER.warn("Can't generate a transactional proxy for " + ejbClass + " as it has a final method (" + finalMethod + ") - its methods are invoked without a transaction");
+            return new ProxyClass(null);
+        }
+
+        // Proxy the business methods as well as equals, hashCode and toString - just like java.lang.reflect.Proxy does
+        ElementMatcher.Junction<MethodDescription> proxiedMethods = isVirtual().and(not(isFinal())).and(
+                not(isDeclaredBy(Object.class)).or(isEquals()).or(isHashCode()).or(isToString()));
+
+        try {
+            Class<?> type = new ByteBuddy(ClassFileVersion.JAVA_V8)
+                    .subclass(subclass ? ejbClass : Object.class)
+                    .implement(subclass ? new Class<?>[0] : ejbClass.getInterfaces())
+                    .name(ejbClass.getName() + (subclass ? "$TestfunTransactionalSubclassProxy" : "$TestfunTransactionalProxy"))
+                    .defineField(DELEGATE_FIELD, ejbClass, Visibility.PRIVATE)
+                    .method(proxiedMethods)
+                    .intercept(Advice.to(TransactionAdvice.class).wrap(MethodCall.invokeSelf().onField(DELEGATE_FIELD).withAllArguments()))
+                    .make()
+                    .load(ejbClass.getClassLoader(), ClassLoadingStrategy.Default.INJECTION)
+                    .getLoaded();
+
+            return new ProxyClass(type);
+
+        } catch (RuntimeException | LinkageError e) {
+            LOGGER.warn("Failed generating a transactional proxy for " + ejbClass, e);
+            return new ProxyClass(null);
+        }
+    }
+
+    private static Method findFinalMethod(Class<?> ejbClass) {
+        for (Class<?> aClass = ejbClass; aClass != null && aClass != Object.class; aClass = aClass.getSuperclass()) {
+            for (Method method : aClass.getDeclaredMethods()) {
+                int modifiers = method.getModifiers();
+                if (Modifier.isFinal(modifiers) && !Modifier.isPrivate(modifiers) && !Modifier.isStatic(modifiers)) {
+                    return method;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static class ProxyClass {
+        private final Class<?> type;
+        private final Field delegateField;
+        private final ObjectInstantiator<?> instantiator;
+
+        private ProxyClass(Class<?> type) {
+            this.type = type;
+            this.instantiator = type != null ? OBJENESIS.getInstantiatorOf(type) : null;
+            try {
+                this.delegateField = type != null ? type.getDeclaredField(DELEGATE_FIELD) : null;
+            } catch (NoSuchFieldException e) {
+                throw new EjbWithMockitoRunnerException("Generated proxy is missing its delegate field: " + type, e);
+            }
+        }
+    }
+
+    /**
+     * The code inlined around the invocation of the EJB's method. Must only access public members.
+     */
+    static class TransactionAdvice {
+
+        @Advice.OnMethodEnter
+        static boolean enter() {
+            return TransactionUtils.beginTransaction();
+        }
+
+        @Advice.OnMethodExit(onThrowable = Throwable.class)
+        static void exit(@Advice.Enter boolean newTransaction, @Advice.Thrown Throwable thrown) {
+            if (thrown != null) {
+                TransactionUtils.rollbackTransaction(thrown);
+            }
+            TransactionUtils.endTransaction(newTransaction);
+        }
+    }
+
+}
@@ -0,0 +1,50 @@
+package org.testfun.jee.runner.jaxrs;
+
+import org.jboss.resteasy.plugins.server.embedded.SimplePrincipal;
+
+import javax.ws.rs.core.SecurityContext;
+import javax.xml.bind.DatatypeConverter;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+
+/**
+ * A security context authenticating the user given in the basic authentication header (if any) without verifying the
+ * password - used by the transports that don't run RESTEasy in a servlet container.
+ */
+class BasicSecurityContext implements SecurityContext {
+
+    private static final String BASIC_AUTH_PREFIX = "BASIC ";
+
+    private final Principal principal;
+
+    BasicSecurityContext(String authorization) {
+        if (authorization != null && authorization.regionMatches(true, 0, BASIC_AUTH_PREFIX, 0, BASIC_AUTH_PREFIX.length())) {
+            String credentials = new String(DatatypeConverter.parseBase64Binary(authorization.substring(BASIC_AUTH_PREFIX.length()).trim()), StandardCharsets.UTF_8);
+            int separator = credentials.indexOf(':');
+            principal = new SimplePrincipal(separator >= 0 ? credentials.substring(0, separator) : credentials);
+        } else {
+            principal = null;
+        }
+    }
+
+    @Override
+    public Principal getUserPrincipal() {
+        return principal;
+    }
+
+    @Override
+    public boolean isUserInRole(String role) {
+        return false;
+    }
+
+    @Override
+    public boolean isSecure() {
+        return false;
+    }
+
+    @Override
+    public String getAuthenticationScheme() {
+        return principal != null ? BASIC_AUTH : null;
+    }
+
+}
@@ -0,0 +1,26 @@
+package org.testfun.jee.runner.jaxrs;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates numbered daemon threads, so thread pools used for sending requests never keep the JVM running after the tests.
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+
+    private final String namePrefix;
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    public DaemonThreadFactory(String namePrefix) {
+        this.namePrefix = namePrefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, namePrefix + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+}
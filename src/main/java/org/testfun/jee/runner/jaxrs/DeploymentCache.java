@@ -0,0 +1,74 @@
+package org.testfun.jee.runner.jaxrs;
+
+import org.jboss.resteasy.plugins.providers.RegisterBuiltin;
+import org.jboss.resteasy.spi.ResteasyProviderFactory;
+import org.jboss.resteasy.spi.metadata.ResourceBuilder;
+import org.jboss.resteasy.spi.metadata.ResourceClass;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches the parts of a RESTEasy deployment that are expensive to build and don't depend on the test using the server,
+ * so starting many servers in the same JVM doesn't repeat them: the provider factory (with the built-in providers and
+ * the server's own providers registered) per distinct list of provider classes, and the resource metadata (resource
+ * methods, parameters, etc.) per resource class.
+ */
+public class DeploymentCache {
+
+    private static final DeploymentCache INSTANCE = new DeploymentCache();
+
+    public static DeploymentCache getInstance() {
+        return INSTANCE;
+    }
+
+    private final Map<List<Class>, ResteasyProviderFactory> providerFactories = new HashMap<>();
+
+    private final ConcurrentMap<Class<?>, ResourceClass> resourceClasses = new ConcurrentHashMap<>();
+
+    private DeploymentCache() {
+    }
+
+    /**
+     * Gets a provider factory with the built-in providers and the given providers registered. The factory is shared by
+     * all the deployments using the same providers, so deployments using it must not register the built-in providers
+     * again (see {@link org.jboss.resteasy.spi.ResteasyDeployment#setRegisterBuiltin(boolean)}) or any other provider.
+     * @param providerClasses the provider classes of the server (may be null)
+     * @return the shared provider factory
+     */
+    public synchronized ResteasyProviderFactory getProviderFactory(Class[] providerClasses) {
+        List<Class> key = providerClasses != null ? Arrays.asList(providerClasses.clone()) : Collections.<Class>emptyList();
+
+        ResteasyProviderFactory providerFactory = providerFactories.get(key);
+        if (providerFactory == null) {
+            providerFactory = ResteasyProviderFactory.newInstance();
+            RegisterBuiltin.register(providerFactory);
+            for (Class providerClass : key) {
+                providerFactory.registerProvider(providerClass);
+            }
+            providerFactories.put(key, providerFactory);
+        }
+
+        return providerFactory;
+    }
+
+    /**
+     * @param resourceClass a root resource class
+     * @return the (cached) metadata of the resource class, built from its annotations
+     */
+    public ResourceClass getResourceClass(Class<?> resourceClass) {
+        ResourceClass metadata = resourceClasses.get(resourceClass);
+        if (metadata == null) {
+            metadata = ResourceBuilder.rootResourceFromAnnotations(resourceClass);
+            ResourceClass existing = resourceClasses.putIfAbsent(resourceClass, metadata);
+            metadata = existing != null ? existing : metadata;
+        }
+        return metadata;
+    }
+
+}
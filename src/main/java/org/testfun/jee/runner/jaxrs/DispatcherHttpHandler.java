@@ -0,0 +1,65 @@
+package org.testfun.jee.runner.jaxrs;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HeaderValues;
+import io.undertow.util.Headers;
+import org.jboss.resteasy.core.Dispatcher;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.jboss.resteasy.spi.ResteasyProviderFactory;
+
+import javax.ws.rs.core.SecurityContext;
+import java.net.URI;
+
+/**
+ * An Undertow handler dispatching requests directly into RESTEasy, without a servlet container. Basic authentication
+ * credentials are exposed to the resources through their {@link SecurityContext} (without verifying the password)
+ * only when a request carries them.
+ * <p>
+ * The handler uses blocking IO, so it must be invoked on a worker thread (e.g. dispatched by the handler in front of it).
+ * Servlet objects (e.g. <code>HttpServletRequest</code>) can't be injected into resources deployed this way.
+ */
+public class DispatcherHttpHandler implements HttpHandler {
+
+    private final Dispatcher dispatcher;
+
+    public DispatcherHttpHandler(Dispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception {
+        exchange.startBlocking();
+
+        URI baseUri = URI.create(exchange.getRequestScheme() + "://" + exchange.getHostAndPort() + "/");
+        String queryString = exchange.getQueryString();
+        URI requestUri = URI.create(exchange.getRequestURL() + (queryString.isEmpty() ? "" : "?" + queryString));
+
+        MockHttpRequest request = MockHttpRequest.create(exchange.getRequestMethod().toString(), requestUri, baseUri);
+        for (HeaderValues header : exchange.getRequestHeaders()) {
+            for (String value : header) {
+                request.header(header.getHeaderName().toString(), value);
+            }
+        }
+        request.content(exchange.getInputStream());
+
+        ExchangeHttpResponse response = new ExchangeHttpResponse(exchange, dispatcher.getProviderFactory());
+        ResteasyProviderFactory.pushContext(SecurityContext.class, new BasicSecurityContext(exchange.getRequestHeaders().getFirst(Headers.AUTHORIZATION)));
+        try {
+            dispatcher.invoke(request, response);
+            response.commit();
+
+        } catch (RuntimeException e) {
+            // Exceptions not mapped to a response (thrown as RESTEasy's UnhandledException) fail the request like they
+            // do in a servlet container, rather than ending the exchange with an empty successful response
+            if (!exchange.isResponseStarted()) {
+                exchange.setStatusCode(500);
+            }
+            throw e;
+
+        } finally {
+            exchange.endExchange();
+        }
+    }
+
+}
@@ -0,0 +1,155 @@
+package org.testfun.jee.runner.jaxrs;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HttpString;
+import org.jboss.resteasy.spi.HttpResponse;
+import org.jboss.resteasy.spi.ResteasyProviderFactory;
+import org.jboss.resteasy.util.CaseInsensitiveMap;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.NewCookie;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A RESTEasy response writing directly to an Undertow exchange. The status and headers are copied to the exchange
+ * when the first byte of the entity is written (or when the response is committed), so the entity is streamed to the
+ * client without being buffered.
+ */
+class ExchangeHttpResponse implements HttpResponse {
+
+    private final HttpServerExchange exchange;
+
+    private final ResteasyProviderFactory providerFactory;
+
+    private final MultivaluedMap<String, Object> outputHeaders = new CaseInsensitiveMap<>();
+
+    private int status = 200;
+
+    private boolean committed;
+
+    private OutputStream outputStream;
+
+    ExchangeHttpResponse(HttpServerExchange exchange, ResteasyProviderFactory providerFactory) {
+        this.exchange = exchange;
+        this.providerFactory = providerFactory;
+        this.outputStream = new CommittingOutputStream();
+    }
+
+    @Override
+    public int getStatus() {
+        return status;
+    }
+
+    @Override
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    @Override
+    public MultivaluedMap<String, Object> getOutputHeaders() {
+        return outputHeaders;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    @Override
+    public void setOutputStream(OutputStream outputStream) {
+        this.outputStream = outputStream;
+    }
+
+    @Override
+    public void addNewCookie(NewCookie cookie) {
+        outputHeaders.add(HttpHeaders.SET_COOKIE, cookie);
+    }
+
+    @Override
+    public void sendError(int status) throws IOException {
+        sendError(status, null);
+    }
+
+    @Override
+    public void sendError(int status, String message) throws IOException {
+        if (committed) {
+            throw new IllegalStateException("Response already committed");
+        }
+
+        this.status = status;
+        outputHeaders.clear();
+        if (message != null) {
+            outputHeaders.putSingle(HttpHeaders.CONTENT_TYPE, "text/plain");
+            commit();
+            exchange.getOutputStream().write(message.getBytes(StandardCharsets.UTF_8));
+        } else {
+            commit();
+        }
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    @Override
+    public void reset() {
+        if (committed) {
+            throw new IllegalStateException("Response already committed");
+        }
+
+        status = 200;
+        outputHeaders.clear();
+    }
+
+    /**
+     * Copies the status and headers to the exchange, unless already done.
+     */
+    void commit() {
+        if (committed) {
+            return;
+        }
+        committed = true;
+
+        exchange.setStatusCode(status);
+        for (Map.Entry<String, List<Object>> header : outputHeaders.entrySet()) {
+            HttpString name = new HttpString(header.getKey());
+            for (Object value : header.getValue()) {
+                exchange.getResponseHeaders().add(name, providerFactory.toHeaderString(value));
+            }
+        }
+    }
+
+    private class CommittingOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            commit();
+            exchange.getOutputStream().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            commit();
+            exchange.getOutputStream().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            commit();
+            exchange.getOutputStream().flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            commit();
+            exchange.getOutputStream().close();
+        }
+    }
+
+}
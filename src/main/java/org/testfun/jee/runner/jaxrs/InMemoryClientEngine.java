@@ -0,0 +1,162 @@
+package org.testfun.jee.runner.jaxrs;
+
+import org.jboss.resteasy.client.jaxrs.ClientHttpEngine;
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocation;
+import org.jboss.resteasy.client.jaxrs.internal.ClientResponse;
+import org.jboss.resteasy.core.Dispatcher;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.jboss.resteasy.spi.ResteasyProviderFactory;
+import org.jboss.resteasy.util.CaseInsensitiveMap;
+import org.testfun.jee.runner.InjectionContext;
+import org.testfun.jee.runner.StatementRecorder;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.SecurityContext;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A JAX-RS client transport that dispatches requests directly into a RESTEasy {@link Dispatcher} running in the same
+ * JVM, using mock HTTP request and response objects instead of sockets. Requests are handled on the thread invoking the engine - the calling thread, unless sent asynchronously.
+ * <p>
+ * Basic authentication credentials sent by the client are exposed to the resources through their
+ * {@link SecurityContext} just like the Undertow based server does.
+ */
+public class InMemoryClientEngine implements ClientHttpEngine {
+
+    /**
+     * Invocation property holding the {@link InjectionContext} the request is dispatched with - requests without it use
+     * the context bound to the dispatching thread.
+     */
+    public static final String INJECTION_CONTEXT_PROPERTY = "org.testfun.jee.injection_context";
+
+    private final Dispatcher dispatcher;
+
+    private final URI baseUri;
+
+    public InMemoryClientEngine(Dispatcher dispatcher, URI baseUri) {
+        this.dispatcher = dispatcher;
+        this.baseUri = baseUri;
+    }
+
+    @Override
+    public SSLContext getSslContext() {
+        return null;
+    }
+
+    @Override
+    public HostnameVerifier getHostnameVerifier() {
+        return null;
+    }
+
+    @Override
+    public ClientResponse invoke(ClientInvocation invocation) {
+        MockHttpRequest request = MockHttpRequest.create(invocation.getMethod(), invocation.getUri(), baseUri);
+
+        for (Map.Entry<String, List<Object>> header : invocation.getHeaders().getHeaders().entrySet()) {
+            for (Object value : header.getValue()) {
+                request.header(header.getKey(), invocation.getClientConfiguration().toHeaderString(value));
+            }
+        }
+
+        // Streamed bodies are passed to the resource as is instead of being copied into memory
+        InputStream fileBody = null;
+        try {
+            if (invocation.getEntity() instanceof InputStream) {
+                request.content((InputStream) invocation.getEntity());
+
+            } else if (invocation.getEntity() instanceof File) {
+                fileBody = new FileInputStream((File) invocation.getEntity());
+                request.content(fileBody);
+
+            } else if (invocation.getEntity() != null) {
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                invocation.writeRequestBody(body);
+                request.content(body.toByteArray());
+            }
+        } catch (IOException e) {
+            throw new JaxRsException("Failed writing request body", e);
+        }
+
+        MockHttpResponse response = new MockHttpResponse();
+        ResteasyProviderFactory.pushContext(SecurityContext.class, new BasicSecurityContext(request.getHttpHeaders().getHeaderString("Authorization")));
+        InjectionContext context = (InjectionContext) invocation.getConfiguration().getProperty(INJECTION_CONTEXT_PROPERTY);
+        InjectionContext previous = context != null ? context.bind() : null;
+        StatementRecorder previousRecorder = StatementRecorder.current();
+        try {
+            dispatcher.invoke(request, response);
+        } finally {
+            StatementRecorder.restore(previousRecorder);
+            if (context != null) {
+                context.unbind(previous);
+            }
+            closeQuietly(fileBody);
+        }
+
+        return toClientResponse(invocation, response);
+    }
+
+    private void closeQuietly(InputStream in) {
+        if (in != null) {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // Nothing to do - the file was only read
+            }
+        }
+    }
+
+    private ClientResponse toClientResponse(ClientInvocation invocation, MockHttpResponse response) {
+        final byte[] output = response.isErrorSent() && response.getOutput().length == 0 && response.getErrorMessage() != null ?
+                response.getErrorMessage().getBytes(StandardCharsets.UTF_8) :
+                response.getOutput();
+
+        ClientResponse clientResponse = new ClientResponse(invocation.getClientConfiguration()) {
+
+            private InputStream inputStream = new ByteArrayInputStream(output);
+
+            @Override
+            protected InputStream getInputStream() {
+                return inputStream;
+            }
+
+            @Override
+            protected void setInputStream(InputStream inputStream) {
+                this.inputStream = inputStream;
+            }
+
+            @Override
+            public void releaseConnection() {
+            }
+        };
+
+        clientResponse.setStatus(response.getStatus());
+        clientResponse.setProperties(invocation.getMutableProperties());
+
+        MultivaluedMap<String, String> headers = new CaseInsensitiveMap<>();
+        for (Map.Entry<String, List<Object>> header : response.getOutputHeaders().entrySet()) {
+            for (Object value : header.getValue()) {
+                headers.add(header.getKey(), invocation.getClientConfiguration().toHeaderString(value));
+            }
+        }
+        clientResponse.setHeaders(headers);
+
+        return clientResponse;
+    }
+
+    @Override
+    public void close() {
+    }
+
+}
@@ -0,0 +1,88 @@
+package org.testfun.jee.runner.jaxrs;
+
+/**
+ * A log-linear histogram of latencies in nanoseconds. Values below 128ns are recorded exactly, larger values are
+ * recorded in buckets of 64 sub-buckets per power of two, so any recorded value is reported with a relative error of
+ * less than 1.6%. The histogram isn't thread-safe - each load worker records into its own histogram and the histograms
+ * are merged when the load is done.
+ */
+class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int EXACT_COUNT = SUB_BUCKET_COUNT * 2;
+
+    // The largest shift of a non-negative long value is 62 - SUB_BUCKET_BITS
+    private static final int BUCKET_COUNT = EXACT_COUNT + (62 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+
+    private long totalCount;
+
+    private long maxValue;
+
+    void record(long nanos) {
+        long value = Math.max(0, nanos);
+        ++counts[indexOf(value)];
+        ++totalCount;
+        maxValue = Math.max(maxValue, value);
+    }
+
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        maxValue = Math.max(maxValue, other.maxValue);
+    }
+
+    long getTotalCount() {
+        return totalCount;
+    }
+
+    long getMaxValue() {
+        return maxValue;
+    }
+
+    /**
+     * @param percentile a percentile between 0 and 100
+     * @return the highest value equivalent (within the histogram's precision) to the value at the percentile, or 0 if
+     * nothing was recorded
+     */
+    long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        long countAtPercentile = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * totalCount));
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            count += counts[i];
+            if (count >= countAtPercentile) {
+                return Math.min(highestEquivalentValue(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    static int indexOf(long value) {
+        if (value < EXACT_COUNT) {
+            return (int) value;
+        }
+
+        // Shift the value so it has SUB_BUCKET_BITS + 1 significant bits - the top bit is always set
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return EXACT_COUNT + (shift - 1) * SUB_BUCKET_COUNT + (int) (value >> shift) - SUB_BUCKET_COUNT;
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < EXACT_COUNT) {
+            return index;
+        }
+
+        int shift = (index - EXACT_COUNT) / SUB_BUCKET_COUNT + 1;
+        long subBucket = (index - EXACT_COUNT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+}
@@ -0,0 +1,178 @@
+package org.testfun.jee.runner.jaxrs;
+
+import org.testfun.jee.runner.InjectionContext;
+
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends a request repeatedly from a pool of worker threads for a given duration and measures the throughput and
+ * latency of the responses. The workers use the injection context of the test running the load, so the resources
+ * handling the requests use the test's EJBs and mocks.
+ * <p>
+ * Note that mocks record every invocation, so long runs against resources using mocks consume memory accordingly.
+ */
+public class LoadGenerator {
+
+    private final RestRequest template;
+
+    private final RestClient client;
+
+    private int concurrency = 1;
+
+    private long durationNanos = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * @param template the request that is sent repeatedly (its expected status and location are ignored)
+     * @param client the client used for sending the requests, or null in order to use a new client with a connection
+     *               per worker
+     */
+    public LoadGenerator(RestRequest template, RestClient client) {
+        this.template = template;
+        this.client = client;
+    }
+
+    /**
+     * @param concurrency the number of worker threads sending requests concurrently
+     * @return this load generator
+     */
+    public LoadGenerator concurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be positive: " + concurrency);
+        }
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * @param duration for how long requests are sent
+     * @param unit the unit of the duration
+     * @return this load generator
+     */
+    public LoadGenerator duration(long duration, TimeUnit unit) {
+        this.durationNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    public LoadResult get() {
+        return run("GET");
+    }
+
+    public LoadResult put() {
+        return run("PUT");
+    }
+
+    public LoadResult post() {
+        return run("POST");
+    }
+
+    public LoadResult delete() {
+        return run("DELETE");
+    }
+
+    private LoadResult run(String method) {
+        RestClient runClient = client != null ? client : RestClient.pooled(concurrency);
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, new DaemonThreadFactory("testfun-load-"));
+
+        try {
+            InjectionContext context = InjectionContext.current();
+            long start = System.nanoTime();
+            long deadline = start + durationNanos;
+
+            List<Future<Worker>> workers = new ArrayList<>();
+            for (int i = 0; i < concurrency; ++i) {
+                workers.add(executor.submit(new Worker(method, runClient, context, deadline)));
+            }
+
+            LatencyHistogram latencies = new LatencyHistogram();
+            SortedMap<Integer, Long> errorsByStatus = new TreeMap<>();
+            long exceptions = 0;
+            for (Future<Worker> future : workers) {
+                Worker worker = future.get();
+                latencies.add(worker.latencies);
+                for (Map.Entry<Integer, Long> entry : worker.errorsByStatus.entrySet()) {
+                    Long count = errorsByStatus.get(entry.getKey());
+                    errorsByStatus.put(entry.getKey(), count == null ? entry.getValue() : count + entry.getValue());
+                }
+                exceptions += worker.exceptions;
+            }
+
+            return new LoadResult(latencies, System.nanoTime() - start, errorsByStatus, exceptions);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JaxRsException("Interrupted while running load", e);
+
+        } catch (ExecutionException e) {
+            throw new JaxRsException("Load worker failed", e.getCause());
+
+        } finally {
+            executor.shutdownNow();
+            if (runClient != client) {
+                runClient.close();
+            }
+        }
+    }
+
+    private class Worker implements Callable<Worker> {
+
+        private final String method;
+        private final RestClient restClient;
+        private final InjectionContext context;
+        private final long deadline;
+
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final Map<Integer, Long> errorsByStatus = new TreeMap<>();
+        private long exceptions;
+
+        private Worker(String method, RestClient restClient, InjectionContext context, long deadline) {
+            this.method = method;
+            this.restClient = restClient;
+            this.context = context;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public Worker call() {
+            InjectionContext previous = context.bind();
+            try {
+                for (long start = System.nanoTime(); start - deadline < 0 && !Thread.currentThread().isInterrupted(); start = System.nanoTime()) {
+                    sendRequest(start);
+                }
+            } finally {
+                context.unbind(previous);
+            }
+            return this;
+        }
+
+        private void sendRequest(long start) {
+            Response response;
+            try {
+                response = template.invoke(method, restClient);
+                response.bufferEntity();
+
+            } catch (RuntimeException e) {
+                ++exceptions;
+                return;
+            }
+
+            latencies.record(System.nanoTime() - start);
+            if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
+                Long count = errorsByStatus.get(response.getStatus());
+                errorsByStatus.put(response.getStatus(), count == null ? 1 : count + 1);
+            }
+            response.close();
+        }
+    }
+
+}
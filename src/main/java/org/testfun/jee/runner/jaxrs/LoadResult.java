@@ -0,0 +1,89 @@
+package org.testfun.jee.runner.jaxrs;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The outcome of a load run by {@link LoadGenerator}: throughput, latency percentiles and the responses that failed.
+ * Latencies are measured from sending the request until the whole response was received, including failed responses.
+ */
+public class LoadResult {
+
+    private final LatencyHistogram latencies;
+
+    private final long elapsedNanos;
+
+    private final SortedMap<Integer, Long> errorsByStatus;
+
+    private final long exceptions;
+
+    LoadResult(LatencyHistogram latencies, long elapsedNanos, SortedMap<Integer, Long> errorsByStatus, long exceptions) {
+        this.latencies = latencies;
+        this.elapsedNanos = elapsedNanos;
+        this.errorsByStatus = Collections.unmodifiableSortedMap(errorsByStatus);
+        this.exceptions = exceptions;
+    }
+
+    /**
+     * @return the number of requests that got a response (successful or not)
+     */
+    public long getRequests() {
+        return latencies.getTotalCount();
+    }
+
+    /**
+     * @return the number of responses per second
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : getRequests() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * @param percentile a percentile between 0 and 100 (e.g. 99.9)
+     * @param unit the unit of the returned latency
+     * @return the latency at the percentile
+     */
+    public long getLatency(double percentile, TimeUnit unit) {
+        return unit.convert(latencies.getValueAtPercentile(percentile), TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaxLatency(TimeUnit unit) {
+        return unit.convert(latencies.getMaxValue(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the number of responses with a non-successful (not 2xx) status by status code
+     */
+    public Map<Integer, Long> getErrorsByStatus() {
+        return errorsByStatus;
+    }
+
+    /**
+     * @return the number of requests that failed without getting any response (e.g. connection failures)
+     */
+    public long getExceptions() {
+        return exceptions;
+    }
+
+    /**
+     * @return the number of non-successful responses and requests that got no response
+     */
+    public long getErrors() {
+        long errors = exceptions;
+        for (long count : errorsByStatus.values()) {
+            errors += count;
+        }
+        return errors;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d requests in %dms (%.1f/s), latency p50=%dus p99=%dus p99.9=%dus max=%dus, errors by status=%s, exceptions=%d",
+                getRequests(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos), getThroughput(),
+                getLatency(50, TimeUnit.MICROSECONDS), getLatency(99, TimeUnit.MICROSECONDS), getLatency(99.9, TimeUnit.MICROSECONDS),
+                getMaxLatency(TimeUnit.MICROSECONDS), errorsByStatus, exceptions);
+    }
+
+}
@@ -0,0 +1,111 @@
+package org.testfun.jee.runner.jaxrs;
+
+import org.jboss.resteasy.client.jaxrs.ClientHttpEngine;
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+
+import javax.ws.rs.client.WebTarget;
+import java.io.Closeable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * A thread-safe JAX-RS client shared by all the {@link RestRequest}s sent to a server. The client keeps a pool of
+ * keep-alive connections and caches the web targets of the recently requested URIs, so sending many requests doesn't
+ * build a new client (with its provider factory and connection manager) for each one of them.
+ */
+public class RestClient implements Closeable {
+
+    public static final int DEFAULT_POOL_SIZE = 20;
+
+    static final int MAX_CACHED_TARGETS = 64;
+
+    private static final RestClient DEFAULT = pooled(DEFAULT_POOL_SIZE);
+
+    private final ResteasyClient client;
+
+    private final Map<String, WebTarget> targets = new TargetCache();
+
+    /**
+     * @return the client used by requests that aren't sent through a {@link org.testfun.jee.JaxRsServer} - never closed
+     */
+    public static RestClient getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Creates a client sending requests over HTTP.
+     * @param poolSize maximal number of connections kept open to the server
+     * @return the new client
+     */
+    public static RestClient pooled(int poolSize) {
+        return new RestClient(newBuilder().connectionPoolSize(poolSize).maxPooledPerRoute(poolSize).build());
+    }
+
+    /**
+     * Creates a client sending requests using a specific transport.
+     * @param engine the client transport, e.g. {@link InMemoryClientEngine}
+     * @return the new client
+     */
+    public static RestClient withEngine(ClientHttpEngine engine) {
+        return new RestClient(newBuilder().httpEngine(engine).build());
+    }
+
+    private static ResteasyClientBuilder newBuilder() {
+        // Asynchronous requests are sent by daemon threads, without RESTEasy's default limit of 10 concurrent requests
+        return new ResteasyClientBuilder().asyncExecutor(Executors.newCachedThreadPool(new DaemonThreadFactory("testfun-rest-async-")), true);
+    }
+
+    private RestClient(ResteasyClient client) {
+        this.client = client;
+    }
+
+    /**
+     * @param uri absolute URI (without query parameters)
+     * @return the (cached) web target of the URI
+     */
+    public WebTarget target(String uri) {
+        synchronized (targets) {
+            WebTarget target = targets.get(uri);
+            if (target == null) {
+                target = client.target(uri);
+                targets.put(uri, target);
+            }
+            return target;
+        }
+    }
+
+    int getCachedTargetCount() {
+        synchronized (targets) {
+            return targets.size();
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (targets) {
+            targets.clear();
+        }
+        client.close();
+    }
+
+    /**
+     * Evicts the least recently used targets, so clients sending requests to many distinct URIs (e.g. URIs holding
+     * generated IDs) don't grow for as long as they're used - the default client is never closed.
+     */
+    private static class TargetCache extends LinkedHashMap<String, WebTarget> {
+
+        private static final long serialVersionUID = 1L;
+
+        private TargetCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, WebTarget> eldest) {
+            return size() > MAX_CACHED_TARGETS;
+        }
+    }
+
+}
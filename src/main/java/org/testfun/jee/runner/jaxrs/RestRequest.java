@@ -1,14 +1,26 @@
 package org.testfun.jee.runner.jaxrs;
 
+import org.testfun.jee.runner.InjectionContext;
+
 import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.ProcessingException;
 import javax.ws.rs.client.*;
 import javax.ws.rs.core.*;
 import javax.xml.bind.DatatypeConverter;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static org.fest.assertions.Assertions.assertThat;
 
@@ -16,6 +28,7 @@ public class RestRequest {
 
     private String uri;
     private int port;
+    private RestClient client;
     private String basicCreds;
 
     private MediaType contentType = MediaType.APPLICATION_XML_TYPE;
@@ -27,9 +40,24 @@ public class RestRequest {
 
     private String expectedLocationUri;
 
+    private Integer expectedMaxQueries;
+
+    private Long expectedMaxServerMillis;
+
     public RestRequest(String uri, int port) {
+        this(uri, port, RestClient.getDefault());
+    }
+
+    /**
+     * Creates a request that is sent using a specific client.
+     * @param uri base request URI
+     * @param port port of the server
+     * @param client the client used for sending the request (shared by all the requests sent to the server)
+     */
+    public RestRequest(String uri, int port, RestClient client) {
         this.uri = uri;
         this.port = port;
+        this.client = client;
     }
 
     public RestRequest accept(MediaType acceptMediaType) {
@@ -47,6 +75,17 @@ public class RestRequest {
         return this;
     }
 
+    /**
+     * Sends the content of a file as the request body without reading it into memory (an <code>InputStream</code> can
+     * be streamed the same way using {@link #body(Object)}).
+     * @param file the file to upload
+     * @return this request
+     */
+    public RestRequest body(Path file) {
+        this.body = file.toFile();
+        return this;
+    }
+
     public RestRequest withFormParam(String name, String value) {
         String entry = name + "=" + value;
         this.body = body == null ? entry : body.toString() + "&" + entry;
@@ -73,57 +112,262 @@ public class RestRequest {
         return this;
     }
 
+    /**
+     * Expect the server to execute at most a number of JDBC statements while handling the request - requires a server
+     * created using {@link org.testfun.jee.JaxRsServer#serverMetrics()}.
+     * @param maxQueries maximal number of statements
+     * @return this request
+     */
+    public RestRequest expectMaxQueries(int maxQueries) {
+        this.expectedMaxQueries = maxQueries;
+        return this;
+    }
+
+    /**
+     * Expect the server to handle the request (excluding the serialization of the response) within a time budget -
+     * requires a server created using {@link org.testfun.jee.JaxRsServer#serverMetrics()}.
+     * @param maxServerMillis maximal server-side handling time in milliseconds
+     * @return this request
+     */
+    public RestRequest expectMaxServerMillis(long maxServerMillis) {
+        this.expectedMaxServerMillis = maxServerMillis;
+        return this;
+    }
+
     public String get() {
-        return doHttpMethod("GET");
+        return doHttpMethod("GET", String.class);
+    }
+
+    /**
+     * Sends a GET request and deserializes the response entity using the client's providers (e.g. a JSON object into
+     * a POJO), without creating an intermediate string.
+     * @param entityType the type of the response entity
+     * @return the response entity
+     */
+    public <T> T get(Class<T> entityType) {
+        return doHttpMethod("GET", entityType);
+    }
+
+    public byte[] getAsBytes() {
+        return doHttpMethod("GET", byte[].class);
+    }
+
+    /**
+     * Sends a GET request and returns the response entity as an unbuffered stream. The stream must be closed by the
+     * caller in order to return the connection to the client's pool.
+     * @return the response entity stream
+     */
+    public InputStream getAsStream() {
+        return doHttpMethod("GET", InputStream.class);
+    }
+
+    /**
+     * Sends a GET request and streams the response entity into a file, so large responses are never held in memory.
+     * @param file the file to write (replaced if it exists)
+     * @return the number of bytes written
+     */
+    public long getTo(Path file) {
+        try (InputStream in = getAsStream()) {
+            if (in == null) {
+                Files.write(file, new byte[0]);
+                return 0;
+            }
+            return Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+
+        } catch (IOException e) {
+            throw new JaxRsException("Failed writing response to " + file, e);
+        }
     }
 
     public String put() {
-        return doHttpMethod("PUT");
+        return doHttpMethod("PUT", String.class);
     }
 
     public String post() {
-        return doHttpMethod("POST");
+        return doHttpMethod("POST", String.class);
     }
 
     public String delete() {
-        return doHttpMethod("DELETE");
+        return doHttpMethod("DELETE", String.class);
     }
 
-    private String doHttpMethod(String method) {
-        UriBuilder path = UriBuilder.fromUri("http://localhost").port(port).path(uri);
-        WebTarget webTarget = ClientBuilder.newClient().register(new AuthFilter()).target(path.build());
+    /**
+     * Sends a GET request without waiting for the response. The expected status and location are asserted once the
+     * response arrives, failing the returned future.
+     * @return a future completed with the response entity
+     */
+    public CompletableFuture<String> getAsync() {
+        return doHttpMethodAsync("GET");
+    }
 
-        for (Map.Entry<String, Object> entry: queryParams.entrySet()) {
-            webTarget = webTarget.queryParam(entry.getKey(), entry.getValue());
+    public CompletableFuture<String> putAsync() {
+        return doHttpMethodAsync("PUT");
+    }
+
+    public CompletableFuture<String> postAsync() {
+        return doHttpMethodAsync("POST");
+    }
+
+    public CompletableFuture<String> deleteAsync() {
+        return doHttpMethodAsync("DELETE");
+    }
+
+    /**
+     * Waits for asynchronous requests to complete, e.g. for sending several requests concurrently:
+     * <pre>{@code
+     * List<CompletableFuture<String>> responses = new ArrayList<>();
+     * for (int i = 0; i < 10; ++i) {
+     *     responses.add(jaxRsServer.jsonRequest("/example/counter").postAsync());
+     * }
+     * List<String> entities = RestRequest.joinAll(responses);
+     * }</pre>
+     * @param futures futures returned by the asynchronous methods
+     * @return the response entities, in the order of the futures
+     * @throws RuntimeException the failure of the first failed request (with the failures of other requests suppressed)
+     * @throws AssertionError if the expected status or location of the first failed request wasn't returned
+     */
+    public static List<String> joinAll(List<CompletableFuture<String>> futures) {
+        List<String> results = new ArrayList<>();
+        Throwable failure = null;
+
+        for (CompletableFuture<String> future : futures) {
+            try {
+                results.add(future.join());
+
+            } catch (CompletionException | CancellationException e) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            }
         }
 
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new JaxRsException("Request failed", failure);
+        }
+        return results;
+    }
+
+    private CompletableFuture<String> doHttpMethodAsync(final String method) {
+        final CompletableFuture<String> future = new CompletableFuture<>();
+
+        try {
+            buildInvocation(method, client).submit(new InvocationCallback<Response>() {
+                @Override
+                public void completed(Response response) {
+                    try {
+                        response.bufferEntity();
+                        assertExpectedStatus(response);
+                        assertLocation(response);
+                        assertServerMetrics(response);
+                        future.complete(readEntity(response, String.class));
+
+                    } catch (Throwable e) {
+                        future.completeExceptionally(e);
+                    }
+                }
+
+                @Override
+                public void failed(Throwable throwable) {
+                    future.completeExceptionally(new JaxRsException(method + " failed", throwable));
+                }
+            });
+
+        } catch (Exception e) {
+            future.completeExceptionally(new JaxRsException(method + " failed", e));
+        }
+
+        return future;
+    }
+
+    private <T> T doHttpMethod(String method, Class<T> entityType) {
         Response response;
         try {
-            if (body != null) {
-                response = webTarget.request().headers(headers).build(method, Entity.entity(body, contentType)).invoke();
-            } else {
-                response = webTarget.request().headers(headers).build(method).invoke();
+            response = invoke(method, client);
+
+            // Error entities are read after the response is returned (e.g. by ExpectedClientResponseFailure) - read
+            // them now so the connection returns to the client's pool. Successful entities are streamed by readEntity.
+            if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
+                response.bufferEntity();
             }
+
         } catch (Exception e) {
             throw new JaxRsException(method + " failed", e);
         }
 
-        assertExpectedStatus(response);
-        assertLocation(response);
-        return toString(response);
+        try {
+            assertExpectedStatus(response);
+            assertLocation(response);
+            assertServerMetrics(response);
+            return readEntity(response, entityType);
+
+        } catch (ProcessingException e) {
+            response.close();
+            throw new JaxRsException(method + " failed reading the response", e);
+
+        } catch (RuntimeException | Error e) {
+            if (response.getStatusInfo().getFamily() == Response.Status.Family.SUCCESSFUL) {
+                response.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Sends the request without asserting anything about the response.
+     * @param method the HTTP method
+     * @param restClient the client used for sending the request
+     * @return the response, which should be closed by the caller
+     */
+    Response invoke(String method, RestClient restClient) {
+        return buildInvocation(method, restClient).invoke();
+    }
+
+    private Invocation buildInvocation(String method, RestClient restClient) {
+        UriBuilder path = UriBuilder.fromUri("http://localhost").port(port).path(uri);
+        WebTarget webTarget = restClient.target(path.build().toString());
+
+        for (Map.Entry<String, Object> entry: queryParams.entrySet()) {
+            webTarget = webTarget.queryParam(entry.getKey(), entry.getValue());
+        }
+
+        MultivaluedMap<String, Object> requestHeaders = new MultivaluedHashMap<>();
+        for (Map.Entry<String, List<Object>> header : headers.entrySet()) {
+            requestHeaders.addAll(header.getKey(), header.getValue());
+        }
+        if (basicCreds != null) {
+            requestHeaders.add("Authorization", getBasicAuthentication());
+        }
+
+        // In-memory requests may be dispatched on another thread (e.g. when sent asynchronously) - let them use the sender's context
+        Invocation.Builder builder = webTarget.request().headers(requestHeaders).property(InMemoryClientEngine.INJECTION_CONTEXT_PROPERTY, InjectionContext.current());
+
+        if (body != null) {
+            return builder.build(method, Entity.entity(body, contentType));
+        } else {
+            return builder.build(method);
+        }
     }
 
-    @SuppressWarnings("unchecked")
-    private String toString(Response response) {
+    private <T> T readEntity(Response response, Class<T> entityType) {
         Response.Status responseStatus = Response.Status.fromStatusCode(response.getStatus());
 
         if (responseStatus == Response.Status.NO_CONTENT) {
+            response.close();
             return null;
         }
         if (responseStatus.getFamily() != Response.Status.Family.SUCCESSFUL && responseStatus != expectedStatus) {
             throw new ClientErrorException(response);
         } else {
-            return response.readEntity(String.class);
+            return response.readEntity(entityType);
         }
     }
 
@@ -146,21 +390,35 @@ public class RestRequest {
         }
     }
 
-    private class AuthFilter implements ClientRequestFilter {
-        public void filter(ClientRequestContext requestContext) throws IOException {
-            if (basicCreds != null) {
-                MultivaluedMap<String, Object> headers = requestContext.getHeaders();
-                final String basicAuthentication = getBasicAuthentication();
-                headers.add("Authorization", basicAuthentication);
-            }
+    private void assertServerMetrics(Response response) {
+        if (expectedMaxQueries != null) {
+            long queries = Long.parseLong(getServerMetric(response, ServerMetricsFilter.QUERY_COUNT_HEADER));
+            assertThat(queries).
+                    as("Expected at most " + expectedMaxQueries + " queries but the server executed " + queries).
+                    isLessThanOrEqualTo(expectedMaxQueries);
         }
 
-        private String getBasicAuthentication() {
-            try {
-                return "BASIC " + DatatypeConverter.printBase64Binary(basicCreds.getBytes("UTF-8"));
-            } catch (UnsupportedEncodingException ex) {
-                throw new IllegalStateException("Cannot encode with UTF-8", ex);
-            }
+        if (expectedMaxServerMillis != null) {
+            double millis = Double.parseDouble(getServerMetric(response, ServerMetricsFilter.SERVER_MILLIS_HEADER));
+            assertThat(millis).
+                    as("Expected the server to handle the request within " + expectedMaxServerMillis + "ms but it took " + millis + "ms").
+                    isLessThanOrEqualTo(expectedMaxServerMillis);
+        }
+    }
+
+    private String getServerMetric(Response response, String header) {
+        String value = response.getHeaderString(header);
+        if (value == null) {
+            throw new JaxRsException("The response has no " + header + " header - create the server using JaxRsServer.serverMetrics()");
+        }
+        return value;
+    }
+
+    private String getBasicAuthentication() {
+        try {
+            return "BASIC " + DatatypeConverter.printBase64Binary(basicCreds.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException("Cannot encode with UTF-8", ex);
         }
     }
 }
@@ -0,0 +1,56 @@
+package org.testfun.jee.runner.jaxrs;
+
+import org.testfun.jee.runner.StatementRecorder;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.PreMatching;
+import javax.ws.rs.ext.Provider;
+import java.util.Locale;
+
+/**
+ * Measures the server-side handling time of each request and counts the JDBC statements executed while handling it
+ * (see {@link StatementRecorder#startForRequest()}), and returns them to the client as response headers. The
+ * measurement covers the resource method, including the EJBs it calls and the statements executed by threads the
+ * resource hands work to (which aren't bound to a test), but not the serialization of the response entity. Statements
+ * executed by such threads while requests overlap are counted by each of them.
+ */
+@Provider
+@PreMatching
+public class ServerMetricsFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    /**
+     * Response header holding the server-side handling time in milliseconds.
+     */
+    public static final String SERVER_MILLIS_HEADER = "X-Testfun-Server-Millis";
+
+    /**
+     * Response header holding the number of JDBC statements executed while handling the request.
+     */
+    public static final String QUERY_COUNT_HEADER = "X-Testfun-Query-Count";
+
+    private static final String START_PROPERTY = ServerMetricsFilter.class.getName() + ".start";
+
+    private static final String RECORDER_PROPERTY = ServerMetricsFilter.class.getName() + ".recorder";
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        requestContext.setProperty(START_PROPERTY, System.nanoTime());
+        requestContext.setProperty(RECORDER_PROPERTY, StatementRecorder.startForRequest());
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        Long start = (Long) requestContext.getProperty(START_PROPERTY);
+        StatementRecorder recorder = (StatementRecorder) requestContext.getProperty(RECORDER_PROPERTY);
+        if (start == null || recorder == null) {
+            return;
+        }
+
+        responseContext.getHeaders().putSingle(SERVER_MILLIS_HEADER, String.format(Locale.ROOT, "%.3f", (System.nanoTime() - start) / 1e6));
+        responseContext.getHeaders().putSingle(QUERY_COUNT_HEADER, String.valueOf(recorder.stop()));
+    }
+
+}
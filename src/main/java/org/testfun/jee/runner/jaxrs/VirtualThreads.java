@@ -0,0 +1,47 @@
+package org.testfun.jee.runner.jaxrs;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates executors running each task on a new virtual thread when the JVM supports them (JDK 21+). The project is
+ * compiled for Java 8, so virtual threads are looked up reflectively - older JVMs get an unbounded pool of daemon
+ * platform threads instead, which doesn't limit the number of concurrent tasks either.
+ */
+public class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true if the JVM supports virtual threads
+     */
+    public static boolean isAvailable() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param namePrefix prefix of the names of the platform threads used when virtual threads aren't available
+     * @return an executor running every task on a new thread, which should be shut down when no longer used
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        if (!isAvailable()) {
+            return Executors.newCachedThreadPool(new DaemonThreadFactory(namePrefix));
+        }
+
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw new JaxRsException("Failed creating virtual thread executor", e);
+        }
+    }
+
+}
@@ -0,0 +1,52 @@
+package org.testfun.jee;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.testfun.jee.real.SomeDao;
+import org.testfun.jee.real.SomeEntity;
+
+import javax.ejb.EJB;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+
+@RunWith(EjbWithMockitoRunner.class)
+@DataSet({"some-entities.json", "SomeEntity.csv"})
+public class DataSetTest {
+
+    @EJB
+    private SomeDao dao;
+
+    @Test
+    public void dataSetLoaded() {
+        List<SomeEntity> entities = dao.getAll();
+        assertThat(entities).onProperty("name").containsOnly("kuki", "puki", "muki, the third", "shuki \"4\"");
+        assertThat(entities).onProperty("vcdApiAddress").containsOnly("kuki.example.com", null, null, "shuki.example.com");
+    }
+
+    @Test
+    public void changesOfOneTestAreRolledBack() {
+        assertDataSetUnchanged();
+
+        dao.save(new SomeEntity(1001, "kuki changed", null));
+        dao.save(new SomeEntity(0, "added by test", null));
+        assertEquals(5, dao.getAll().size());
+    }
+
+    @Test
+    public void changesOfAnotherTestAreRolledBack() {
+        assertDataSetUnchanged();
+
+        dao.save(new SomeEntity(1002, "puki changed", null));
+        dao.save(new SomeEntity(0, "added by test", null));
+        assertEquals(5, dao.getAll().size());
+    }
+
+    private void assertDataSetUnchanged() {
+        List<SomeEntity> entities = dao.getAll();
+        assertEquals(4, entities.size());
+        assertThat(entities).onProperty("name").containsOnly("kuki", "puki", "muki, the third", "shuki \"4\"");
+    }
+
+}
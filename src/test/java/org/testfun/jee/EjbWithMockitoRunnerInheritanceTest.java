@@ -0,0 +1,28 @@
+package org.testfun.jee;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.ejb.EJB;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+@RunWith(EjbWithMockitoRunner.class)
+public class EjbWithMockitoRunnerInheritanceTest extends MockEjbLocalTestBase {
+
+    @EJB
+    private EjbLocal ejb;
+
+    @Test
+    public void mockOfSuperclassInjectedIntoEjbOfSubclass() {
+        when(mock.mockAnswer("Who's Zed?")).thenReturn("Zed's dead baby, Zed's dead.");
+        assertEquals("Zed's dead baby, Zed's dead.", ejb.mockAnswer("Who's Zed?"));
+    }
+
+    @Test
+    public void sameInjectionForEveryTestInstance() {
+        when(mock.mockAnswer("Whose chopper is this?")).thenReturn("It's Zed's.");
+        assertEquals("It's Zed's.", ejb.mockAnswer("Whose chopper is this?"));
+    }
+}
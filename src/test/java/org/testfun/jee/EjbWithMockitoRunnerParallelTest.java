@@ -0,0 +1,174 @@
+package org.testfun.jee;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.ParallelComputer;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import org.mockito.Mock;
+import org.testfun.jee.real.SomeDao;
+import org.testfun.jee.real.SomeEntity;
+
+import javax.annotation.Resource;
+import javax.ejb.EJB;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+public class EjbWithMockitoRunnerParallelTest {
+
+    private String parallel;
+
+    @Before
+    public void enableParallel() {
+        parallel = System.setProperty("org.testfun.jee.parallel", "true");
+    }
+
+    @After
+    public void restoreParallel() {
+        if (parallel == null) {
+            System.clearProperty("org.testfun.jee.parallel");
+        } else {
+            System.setProperty("org.testfun.jee.parallel", parallel);
+        }
+    }
+
+    @Test
+    public void parallelTestsUseTheirOwnMocks() {
+        Result result = JUnitCore.runClasses(ParallelComputer.methods(), ConcurrentTests.class);
+
+        for (Failure failure : result.getFailures()) {
+            throw new AssertionError(failure.getMessage(), failure.getException());
+        }
+        assertEquals(3, result.getRunCount());
+    }
+
+    @Test
+    public void parallelTestsUseIsolatedDatabases() {
+        Result result = JUnitCore.runClasses(ParallelComputer.methods(), ConcurrentDbTests.class);
+
+        for (Failure failure : result.getFailures()) {
+            throw new AssertionError(failure.getMessage(), failure.getException());
+        }
+        assertEquals(3, result.getRunCount());
+    }
+
+    @Test
+    public void concurrentTestsFailWithoutParallelProperty() {
+        System.clearProperty("org.testfun.jee.parallel");
+        Result result = JUnitCore.runClasses(ParallelComputer.methods(), SharedEntityManagerTests.class);
+
+        boolean rejected = false;
+        for (Failure failure : result.getFailures()) {
+            rejected |= failure.getMessage() != null && failure.getMessage().contains("set the org.testfun.jee.parallel system property");
+        }
+        assertTrue("Expected a concurrent test to be rejected: " + result.getFailures(), rejected);
+    }
+
+    @RunWith(EjbWithMockitoRunner.class)
+    public static class ConcurrentTests {
+
+        // Holds the tests until all of them were injected so they're all running at the same time
+        private static final CyclicBarrier ALL_INJECTED = new CyclicBarrier(3);
+
+        @EJB
+        private EjbLocal ejb;
+
+        @Mock
+        private MockEjbLocal mock;
+
+        @Test
+        public void first() throws Exception {
+            assertOwnMock("first");
+        }
+
+        @Test
+        public void second() throws Exception {
+            assertOwnMock("second");
+        }
+
+        @Test
+        public void third() throws Exception {
+            assertOwnMock("third");
+        }
+
+        private void assertOwnMock(String answer) throws Exception {
+            when(mock.mockAnswer("Who are you?")).thenReturn(answer);
+            assertTrue(ALL_INJECTED.await(10, TimeUnit.SECONDS) >= 0);
+            assertEquals(answer, ejb.mockAnswer("Who are you?"));
+        }
+    }
+
+    @RunWith(EjbWithMockitoRunner.class)
+    public static class ConcurrentDbTests {
+
+        // Holds the tests until all of them inserted their rows so they're all running at the same time
+        private static final CyclicBarrier ALL_INSERTED = new CyclicBarrier(3);
+
+        @EJB
+        private SomeDao dao;
+
+        @Resource
+        private DataSource dataSource;
+
+        @Test
+        public void first() throws Exception {
+            assertOnlyOwnRow();
+        }
+
+        @Test
+        public void second() throws Exception {
+            assertOnlyOwnRow();
+        }
+
+        @Test
+        public void third() throws Exception {
+            assertOnlyOwnRow();
+        }
+
+        private void assertOnlyOwnRow() throws Exception {
+            // The name is unique - concurrent tests sharing a database would block or fail on the second insert
+            dao.save(new SomeEntity(0, "kuki", "puki"));
+            assertTrue(ALL_INSERTED.await(10, TimeUnit.SECONDS) >= 0);
+
+            assertEquals(1, dao.getAll().size());
+
+            try (
+                    Connection connection = dataSource.getConnection();
+                    Statement statement = connection.createStatement();
+                    ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM SomeEntity")
+            ) {
+                assertTrue(resultSet.next());
+                assertEquals(1, resultSet.getInt(1));
+            }
+        }
+    }
+
+    @RunWith(EjbWithMockitoRunner.class)
+    public static class SharedEntityManagerTests {
+
+        // Keeps the first test running until the second one started (or was rejected)
+        private static final CyclicBarrier BOTH_RUNNING = new CyclicBarrier(2);
+
+        @Test
+        public void first() throws Exception {
+            BOTH_RUNNING.await(2, TimeUnit.SECONDS);
+        }
+
+        @Test
+        public void second() throws Exception {
+            BOTH_RUNNING.await(2, TimeUnit.SECONDS);
+        }
+    }
+
+}
@@ -13,6 +13,7 @@ import java.io.Serializable;
 import java.lang.reflect.Field;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 public class InjectionUtilsTest {
 
@@ -44,6 +45,19 @@ public class InjectionUtilsTest {
         assertEquals(142, a.getIn());
     }
 
+    @Test
+    public void assignObjectToFieldKeepsAccessibility() throws NoSuchFieldException {
+        Field field = ClassA.class.getDeclaredField("str");
+        InjectionUtils.assignObjectToField(new ClassA(), field, "done!");
+        assertFalse(field.isAccessible());
+    }
+
+    @Test
+    public void assignObjectToStaticField() throws NoSuchFieldException {
+        InjectionUtils.assignObjectToField(new ClassB(), ClassB.class.getDeclaredField("shared"), "static");
+        assertEquals("static", InjectionUtils.readObjectFromField(null, ClassB.class.getDeclaredField("shared")));
+    }
+
     @Test
     public void assignObjectToFieldFailed() throws NoSuchFieldException {
         thrown.expectMessage("Failed injecting to field 'in' declared in class org.testfun.jee.InjectionUtilsTest$ClassA");
@@ -87,6 +101,7 @@ public class InjectionUtilsTest {
 
     @Data @AllArgsConstructor @NoArgsConstructor @EqualsAndHashCode(callSuper = true)
     static class ClassB extends ClassA {
+        private static String shared;
         private String child;
     }
 
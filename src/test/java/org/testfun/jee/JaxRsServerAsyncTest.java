@@ -0,0 +1,121 @@
+package org.testfun.jee;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testfun.jee.examples.ExampleResource;
+import org.testfun.jee.examples.RestData;
+import org.testfun.jee.real.SomeDao;
+import org.testfun.jee.real.SomeEntity;
+import org.testfun.jee.runner.jaxrs.RestRequest;
+
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+@RunWith(EjbWithMockitoRunner.class)
+public class JaxRsServerAsyncTest {
+
+    private static final int CONCURRENCY = 4;
+
+    @Rule
+    public JaxRsServer jaxRsServer = JaxRsServer.forResources(ExampleResource.class);
+
+    @Rule
+    public JaxRsServer inMemoryServer = JaxRsServer.forResources(ExampleResource.class).inMemory();
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Mock
+    private SomeDao someDao;
+
+    @Test
+    public void concurrentRequests() {
+        assertConcurrent(jaxRsServer);
+    }
+
+    @Test
+    public void concurrentInMemoryRequests() {
+        assertConcurrent(inMemoryServer);
+    }
+
+    @Test
+    public void postAsync() {
+        List<String> entities = RestRequest.joinAll(Collections.singletonList(
+                jaxRsServer.jsonRequest("/example/data").body(new RestData(7, "seven"))
+                        .expectStatus(Response.Status.CREATED).expectLocation("/example/data/7")
+                        .postAsync()
+        ));
+
+        assertEquals(1, entities.size());
+    }
+
+    @Test
+    public void expectedStatusAsserted() {
+        CompletableFuture<String> future = jaxRsServer.jsonRequest("/example/data/1").expectStatus(Response.Status.NOT_FOUND).getAsync();
+
+        thrown.expect(AssertionError.class);
+        thrown.expectMessage("Expected response with status 404");
+        RestRequest.joinAll(Collections.singletonList(future));
+    }
+
+    @Test
+    public void failureOfFirstFailedRequestThrown() {
+        List<CompletableFuture<String>> futures = Arrays.asList(
+                inMemoryServer.jsonRequest("/example/data/1").getAsync(),
+                inMemoryServer.jsonRequest("/example/data/0").getAsync(),
+                inMemoryServer.jsonRequest("/example/data/-1").getAsync()
+        );
+
+        try {
+            RestRequest.joinAll(futures);
+            throw new AssertionError("Expected failure");
+
+        } catch (ClientErrorException e) {
+            assertEquals(404, e.getResponse().getStatus());
+            assertEquals(1, e.getSuppressed().length);
+        }
+    }
+
+    @Test
+    public void expectedFailureResponse() {
+        jaxRsServer.expectFailureResponse(Response.Status.NOT_FOUND, "Data with ID 0 wasn't found");
+        RestRequest.joinAll(Collections.singletonList(jaxRsServer.jsonRequest("/example/data/0").getAsync()));
+    }
+
+    private void assertConcurrent(JaxRsServer server) {
+        // Every request blocks until all of them are handled concurrently
+        final CountDownLatch allArrived = new CountDownLatch(CONCURRENCY);
+        when(someDao.getAll()).thenAnswer(new Answer<List<SomeEntity>>() {
+            @Override
+            public List<SomeEntity> answer(InvocationOnMock invocation) throws Throwable {
+                allArrived.countDown();
+                assertTrue("Requests weren't handled concurrently", allArrived.await(10, TimeUnit.SECONDS));
+                return Collections.singletonList(new SomeEntity(0, "kuki", "puki"));
+            }
+        });
+
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < CONCURRENCY; ++i) {
+            futures.add(server.jsonRequest("/example/use_ejb").header("index", 0).getAsync());
+        }
+
+        assertEquals(Collections.nCopies(CONCURRENCY, "kuki"), RestRequest.joinAll(futures));
+    }
+
+}
@@ -0,0 +1,70 @@
+package org.testfun.jee;
+
+import org.junit.AfterClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.testfun.jee.runner.InjectionContext;
+
+import javax.ejb.EJB;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+/**
+ * A class scoped server must not inject its resources when the class starts - {@link MockEjbLocal} has no
+ * implementation, so it can only be injected with the mock of a test.
+ */
+@RunWith(EjbWithMockitoRunner.class)
+public class JaxRsServerClassScopedMockOnlyTest {
+
+    @ClassRule
+    public static JaxRsServer classServer = JaxRsServer.forResources(MockOnlyResource.class);
+
+    @Rule
+    public JaxRsServer jaxRsServer = classServer;
+
+    @Mock
+    private MockEjbLocal mockEjbLocal;
+
+    @Test
+    public void resourceInjectedWithMockOfTest() {
+        when(mockEjbLocal.mockAnswer("kuki")).thenReturn("puki");
+        assertEquals("puki", jaxRsServer.jsonRequest("/mock_only").queryParam("question", "kuki").get());
+    }
+
+    @Test
+    public void resourceInjectedWithMockOfEachTest() {
+        when(mockEjbLocal.mockAnswer("kuki")).thenReturn("muki");
+        assertEquals("muki", jaxRsServer.jsonRequest("/mock_only").queryParam("question", "kuki").get());
+    }
+
+    @AfterClass
+    public static void requestsBetweenTestsUseDefaultContext() {
+        assertEquals("true", classServer.jsonRequest("/mock_only/default_context").get());
+    }
+
+    @Path("/mock_only")
+    public static class MockOnlyResource {
+
+        @EJB
+        private MockEjbLocal mockEjbLocal;
+
+        @GET
+        public String answer(@QueryParam("question") String question) {
+            return mockEjbLocal.mockAnswer(question);
+        }
+
+        @GET
+        @Path("/default_context")
+        public String defaultContext() {
+            return String.valueOf(InjectionContext.current() == InjectionContext.getDefault());
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+package org.testfun.jee;
+
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.testfun.jee.examples.ExampleResource;
+import org.testfun.jee.real.SomeDao;
+import org.testfun.jee.real.SomeEntity;
+
+import javax.ws.rs.core.Response;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.mockito.Mockito.when;
+
+@RunWith(EjbWithMockitoRunner.class)
+public class JaxRsServerClassScopedTest {
+
+    @ClassRule
+    public static JaxRsServer classServer = JaxRsServer.forResources(ExampleResource.class);
+
+    @Rule
+    public JaxRsServer jaxRsServer = classServer;
+
+    private static int port;
+
+    @Mock
+    private SomeDao someDao;
+
+    @Test
+    public void serverSharedByTestMethods() {
+        assertNotEquals(0, jaxRsServer.getPort());
+        if (port != 0) {
+            assertEquals(port, jaxRsServer.getPort());
+        }
+        port = jaxRsServer.getPort();
+    }
+
+    @Test
+    public void serverSharedByTestMethodsAgain() {
+        serverSharedByTestMethods();
+    }
+
+    @Test
+    public void resourceInjectedWithMockOfTest() {
+        when(someDao.getAll()).thenReturn(Collections.singletonList(new SomeEntity(0, "kuki", "a1")));
+        assertEquals("kuki", jaxRsServer.jsonRequest("/example/use_ejb").header("index", 0).get());
+    }
+
+    @Test
+    public void resourceInjectedWithMockOfTestAgain() {
+        when(someDao.getAll()).thenReturn(Collections.singletonList(new SomeEntity(0, "puki", "a1")));
+        assertEquals("puki", jaxRsServer.jsonRequest("/example/use_ejb").header("index", 0).get());
+    }
+
+    @Test
+    public void expectFailureResponse() {
+        jaxRsServer.expectFailureResponse(Response.Status.NOT_FOUND, "Data with ID 0 wasn't found");
+        jaxRsServer.jsonRequest("/example/data/0").get();
+    }
+
+}
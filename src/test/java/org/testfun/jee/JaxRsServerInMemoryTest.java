@@ -0,0 +1,127 @@
+package org.testfun.jee;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.skyscreamer.jsonassert.JSONAssert;
+import org.skyscreamer.jsonassert.JSONCompareMode;
+import org.testfun.jee.examples.ExampleResource;
+import org.testfun.jee.examples.RestData;
+import org.testfun.jee.real.SomeDao;
+import org.testfun.jee.real.SomeEntity;
+import org.testfun.jee.runner.jaxrs.JaxRsException;
+
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.core.Response;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+@RunWith(EjbWithMockitoRunner.class)
+public class JaxRsServerInMemoryTest {
+
+    @Rule
+    public JaxRsServer jaxRsServer = JaxRsServer.forResources(TestResource.class, ExampleResource.class).inMemory();
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Mock
+    private SomeDao someDao;
+
+    @Test
+    public void noPortAllocated() {
+        assertEquals(0, jaxRsServer.getPort());
+    }
+
+    @Test
+    public void getWithParams() throws Exception {
+        JSONAssert.assertEquals(
+                "{\"str\":\"Here it is\",\"num\":111}",
+                jaxRsServer.jsonRequest("/rest/test/known").queryParam("num", 111).get(),
+                JSONCompareMode.LENIENT
+        );
+    }
+
+    @Test
+    public void putWithHeaders() throws Exception {
+        JSONAssert.assertEquals(
+                "{\"str\":\"a string\",\"num\":1234}",
+                jaxRsServer.jsonRequest("/rest/test/put").header("str", "a string").header("num", 1234).put(),
+                JSONCompareMode.LENIENT
+        );
+    }
+
+    @Test
+    public void postWithBody() throws Exception {
+        JSONAssert.assertEquals(
+                "{\"str\":\"a string\",\"num\":1234}",
+                jaxRsServer.jsonRequest("/rest/test/post").body(new JaxRsTestObject("a string", 1234)).post(),
+                JSONCompareMode.LENIENT
+        );
+    }
+
+    @Test
+    public void expectStatusAndLocation() {
+        jaxRsServer.jsonRequest("/example/data")
+                .body(new RestData(12, "data..."))
+                .expectStatus(Response.Status.CREATED)
+                .expectLocation("/example/data/12")
+                .post();
+    }
+
+    @Test
+    public void formParams() {
+        assertEquals("kuki-puki", jaxRsServer.formRequest("/example/form").withFormParam("p1", "kuki").withFormParam("p2", "puki").post());
+    }
+
+    @Test
+    public void basicAuth() {
+        assertEquals("kuki", jaxRsServer.jsonRequest("/example/user_from_security_context").basicAuth("kuki", "puki").get());
+    }
+
+    @Test
+    public void withMock() {
+        when(someDao.getAll()).thenReturn(Collections.singletonList(new SomeEntity(0, "n1", "a1")));
+        assertEquals("n1", jaxRsServer.jsonRequest("/example/use_ejb").header("index", 0).get());
+    }
+
+    @Test
+    public void getNotFound() {
+        jaxRsServer.expectFailureResponse(Response.Status.NOT_FOUND, "I can't find it");
+        jaxRsServer.jsonRequest("/rest/test/unknown").get();
+    }
+
+    @Test
+    public void unexpectedFailure() {
+        thrown.expect(ClientErrorException.class);
+        thrown.expectMessage("HTTP 404 Not Found");
+
+        jaxRsServer.jsonRequest("/rest/test/unknown").get();
+    }
+
+    @Test
+    public void leanRejected() {
+        thrown.expect(JaxRsException.class);
+        thrown.expectMessage("can't be lean");
+        JaxRsServer.forResources(TestResource.class).inMemory().lean();
+    }
+
+    @Test
+    public void undertowSettingsRejected() {
+        thrown.expect(JaxRsException.class);
+        thrown.expectMessage("Undertow settings");
+        JaxRsServer.forResources(TestResource.class).workerThreads(4).inMemory();
+    }
+
+    @Test
+    public void portRejected() {
+        thrown.expect(JaxRsException.class);
+        thrown.expectMessage("don't listen on a port");
+        JaxRsServer.forResources(TestResource.class).inMemory().port(8080);
+    }
+
+}
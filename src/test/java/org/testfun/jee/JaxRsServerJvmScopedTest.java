@@ -0,0 +1,45 @@
+package org.testfun.jee;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.testfun.jee.examples.ExampleResource;
+import org.testfun.jee.real.SomeDao;
+import org.testfun.jee.real.SomeEntity;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+@RunWith(EjbWithMockitoRunner.class)
+public class JaxRsServerJvmScopedTest {
+
+    @Rule
+    public JaxRsServer jaxRsServer = JaxRsServer.forResources(ExampleResource.class).jvmScoped();
+
+    @Rule
+    public JaxRsServer anotherJaxRsServer = JaxRsServer.forResources(ExampleResource.class).jvmScoped();
+
+    @Mock
+    private SomeDao someDao;
+
+    @Test
+    public void sameConfigurationSharesServer() {
+        assertEquals(jaxRsServer.getPort(), anotherJaxRsServer.getPort());
+    }
+
+    @Test
+    public void resourceInjectedWithMockOfTest() {
+        when(someDao.getAll()).thenReturn(Collections.singletonList(new SomeEntity(0, "kuki", "a1")));
+        assertEquals("kuki", jaxRsServer.jsonRequest("/example/use_ejb").header("index", 0).get());
+    }
+
+    @Test
+    public void resourceInjectedWithMockOfTestAgain() {
+        when(someDao.getAll()).thenReturn(Collections.singletonList(new SomeEntity(0, "puki", "a1")));
+        assertEquals("puki", jaxRsServer.jsonRequest("/example/use_ejb").header("index", 0).get());
+    }
+
+}
@@ -0,0 +1,73 @@
+package org.testfun.jee;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.testfun.jee.examples.ExampleResource;
+import org.testfun.jee.real.SomeDao;
+import org.testfun.jee.real.SomeEntity;
+import org.testfun.jee.runner.jaxrs.LoadResult;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+@RunWith(EjbWithMockitoRunner.class)
+public class JaxRsServerLoadTest {
+
+    @Rule
+    public JaxRsServer jaxRsServer = JaxRsServer.forResources(ExampleResource.class);
+
+    @Mock
+    private SomeDao someDao;
+
+    @Test
+    public void loadUsesMocksOfTest() {
+        when(someDao.getAll()).thenReturn(Collections.singletonList(new SomeEntity(0, "kuki", "puki")));
+
+        LoadResult result = jaxRsServer.load(jaxRsServer.jsonRequest("/example/use_ejb").header("index", 0))
+                .concurrency(4)
+                .duration(300, TimeUnit.MILLISECONDS)
+                .get();
+
+        assertTrue(result.toString(), result.getRequests() > 0);
+        assertEquals(result.toString(), 0, result.getErrors());
+        assertTrue(result.getThroughput() > 0);
+        assertTrue(result.getLatency(50, TimeUnit.NANOSECONDS) <= result.getLatency(99, TimeUnit.NANOSECONDS));
+        assertTrue(result.getLatency(99.9, TimeUnit.NANOSECONDS) <= result.getMaxLatency(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void errorsByStatus() {
+        LoadResult result = jaxRsServer.load(jaxRsServer.jsonRequest("/example/data/0"))
+                .concurrency(2)
+                .duration(100, TimeUnit.MILLISECONDS)
+                .get();
+
+        assertEquals(Collections.singleton(404), result.getErrorsByStatus().keySet());
+        assertEquals(result.getRequests(), (long) result.getErrorsByStatus().get(404));
+    }
+
+    @Test
+    public void inMemoryLoad() {
+        JaxRsServer inMemoryServer = JaxRsServer.forResources(ExampleResource.class).inMemory();
+        inMemoryServer.startJaxRsServer();
+        try {
+            LoadResult result = inMemoryServer.load(inMemoryServer.jsonRequest("/example/data/1"))
+                    .concurrency(4)
+                    .duration(100, TimeUnit.MILLISECONDS)
+                    .get();
+
+            assertTrue(result.toString(), result.getRequests() > 0);
+            assertEquals(result.toString(), 0, result.getErrors());
+
+        } finally {
+            inMemoryServer.shutdownJaxRsServer();
+        }
+    }
+
+}
@@ -0,0 +1,193 @@
+package org.testfun.jee;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.testfun.jee.examples.ExampleResource;
+import org.testfun.jee.real.SomeDao;
+import org.testfun.jee.real.SomeEntity;
+import org.testfun.jee.runner.SingletonDataSource;
+import org.testfun.jee.runner.StatementRecorder;
+import org.testfun.jee.runner.jaxrs.JaxRsException;
+import org.testfun.jee.runner.jaxrs.RestRequest;
+
+import javax.ejb.EJB;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+@RunWith(EjbWithMockitoRunner.class)
+public class JaxRsServerMetricsTest {
+
+    @Rule
+    public JaxRsServer jaxRsServer = JaxRsServer.forResources(ExampleResource.class).serverMetrics();
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @EJB
+    private SomeDao dao;
+
+    @Test
+    public void withinBudget() {
+        dao.save(new SomeEntity(0, "kuki", "puki"));
+
+        assertEquals("kuki", jaxRsServer.jsonRequest("/example/use_ejb").header("index", 0).expectMaxQueries(3).expectMaxServerMillis(10000).get());
+        jaxRsServer.jsonRequest("/example/data/1").expectMaxQueries(0).get();
+    }
+
+    @Test
+    public void tooManyQueries() {
+        dao.save(new SomeEntity(0, "kuki", "puki"));
+
+        thrown.expect(AssertionError.class);
+        thrown.expectMessage("Expected at most 0 queries but the server executed");
+        jaxRsServer.jsonRequest("/example/use_ejb").header("index", 0).expectMaxQueries(0).get();
+    }
+
+    @Test
+    public void asyncRequest() {
+        dao.save(new SomeEntity(0, "kuki", "puki"));
+
+        thrown.expect(AssertionError.class);
+        thrown.expectMessage("Expected at most 0 queries");
+        RestRequest.joinAll(Collections.singletonList(jaxRsServer.jsonRequest("/example/use_ejb").header("index", 0).expectMaxQueries(0).getAsync()));
+    }
+
+    @Test
+    public void inMemory() {
+        dao.save(new SomeEntity(0, "kuki", "puki"));
+
+        JaxRsServer server = JaxRsServer.forResources(ExampleResource.class).inMemory().serverMetrics();
+        server.startJaxRsServer();
+        try {
+            server.jsonRequest("/example/use_ejb").header("index", 0).expectMaxQueries(3).get();
+
+            thrown.expect(AssertionError.class);
+            server.jsonRequest("/example/use_ejb").header("index", 0).expectMaxQueries(0).get();
+
+        } finally {
+            server.shutdownJaxRsServer();
+        }
+    }
+
+    @Test
+    public void metricsNotEnabled() {
+        JaxRsServer server = JaxRsServer.forResources(ExampleResource.class).inMemory();
+        server.startJaxRsServer();
+        try {
+            thrown.expect(JaxRsException.class);
+            thrown.expectMessage("JaxRsServer.serverMetrics()");
+            server.jsonRequest("/example/data/1").expectMaxQueries(1).get();
+
+        } finally {
+            server.shutdownJaxRsServer();
+        }
+    }
+
+    @Test
+    public void queriesOfExecutorThreadsCounted() {
+        JaxRsServer server = JaxRsServer.forResources(RecorderResource.class).serverMetrics();
+        server.startJaxRsServer();
+        try {
+            server.jsonRequest("/recorder/executor").expectMaxQueries(1).get();
+
+            thrown.expect(AssertionError.class);
+            thrown.expectMessage("Expected at most 0 queries but the server executed 1");
+            server.jsonRequest("/recorder/executor").expectMaxQueries(0).get();
+
+        } finally {
+            server.shutdownJaxRsServer();
+        }
+    }
+
+    @Test
+    public void recorderStoppedWhenResourceFails() {
+        assertRecorderNotLeaked(JaxRsServer.forResources(RecorderResource.class).serverMetrics().workerThreads(1));
+    }
+
+    @Test
+    public void recorderStoppedWhenLeanResourceFails() {
+        assertRecorderNotLeaked(JaxRsServer.forResources(RecorderResource.class).serverMetrics().lean().workerThreads(1));
+    }
+
+    @Test
+    public void recorderStoppedWhenInMemoryResourceFails() {
+        assertRecorderNotLeaked(JaxRsServer.forResources(RecorderResource.class).serverMetrics().inMemory());
+        assertNull(StatementRecorder.current());
+    }
+
+    private void assertRecorderNotLeaked(JaxRsServer server) {
+        server.startJaxRsServer();
+        try {
+            try {
+                server.jsonRequest("/recorder/fail").get();
+                fail("The resource should fail");
+            } catch (RuntimeException e) {
+                // Unmapped exceptions skip the response filter stopping the recorder of the request
+            }
+
+            // The only worker thread handles the next request - without the recorder of the failed request
+            assertEquals("false", server.jsonRequest("/recorder/leaked").get());
+
+        } finally {
+            server.shutdownJaxRsServer();
+        }
+    }
+
+    @Path("/recorder")
+    public static class RecorderResource {
+
+        @GET
+        @Path("/fail")
+        public String fail() {
+            throw new IllegalStateException("Not mapped to a response");
+        }
+
+        /**
+         * Stops the recorder of the request (started by the metrics filter) and checks whether an outer recorder was
+         * left running on the thread.
+         */
+        /**
+         * Runs a query on an executor thread and waits for it.
+         */
+        @GET
+        @Path("/executor")
+        public String executor() throws Exception {
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                return executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        Connection connection = SingletonDataSource.getDataSource().getConnection();
+                        try (PreparedStatement statement = connection.prepareStatement("select count(*) from INFORMATION_SCHEMA.SYSTEM_USERS")) {
+                            statement.executeQuery().close();
+                        }
+                        return "done";
+                    }
+                }).get();
+
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        @GET
+        @Path("/leaked")
+        public String leaked() {
+            StatementRecorder.current().stop();
+            return String.valueOf(StatementRecorder.current() != null);
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+package org.testfun.jee;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.testfun.jee.examples.ExampleResource;
+import org.testfun.jee.real.SomeDao;
+import org.testfun.jee.real.SomeEntity;
+import org.testfun.jee.runner.jaxrs.JaxRsException;
+
+import javax.ws.rs.core.Response;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.mockito.Mockito.when;
+
+@RunWith(EjbWithMockitoRunner.class)
+public class JaxRsServerPoolTest {
+
+    static {
+        JaxRsServer.forResources(ExampleResource.class).pooled(2).warmUp();
+    }
+
+    @Rule
+    public JaxRsServer jaxRsServer = JaxRsServer.forResources(ExampleResource.class).pooled(2);
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Mock
+    private SomeDao someDao;
+
+    @Test
+    public void resourceInjectedWithMockOfTest() {
+        when(someDao.getAll()).thenReturn(Collections.singletonList(new SomeEntity(0, "first", "a")));
+        assertEquals("first", jaxRsServer.jsonRequest("/example/use_ejb").header("index", 0).get());
+    }
+
+    @Test
+    public void resourceInjectedWithMockOfTestAgain() {
+        when(someDao.getAll()).thenReturn(Collections.singletonList(new SomeEntity(0, "second", "b")));
+        assertEquals("second", jaxRsServer.jsonRequest("/example/use_ejb").header("index", 0).get());
+    }
+
+    @Test
+    public void concurrentLeasesAndReuse() {
+        JaxRsServer first = JaxRsServer.forResources(TestResource.class).pooled(3);
+        JaxRsServer second = JaxRsServer.forResources(TestResource.class).pooled(3);
+
+        first.startJaxRsServer();
+        second.startJaxRsServer();
+        int releasedPort = second.getPort();
+        try {
+            assertNotEquals(first.getPort(), second.getPort());
+            first.jsonRequest("/rest/test/known").get();
+            second.jsonRequest("/rest/test/known").get();
+
+        } finally {
+            second.shutdownJaxRsServer();
+        }
+
+        // The server returned last is leased first - with the resources of the new lessee only
+        JaxRsServer third = JaxRsServer.forResources(ExampleResource.class).pooled(3);
+        third.startJaxRsServer();
+        try {
+            assertEquals(releasedPort, third.getPort());
+            third.jsonRequest("/example/data/1").get();
+            third.jsonRequest("/rest/test/known").expectStatus(Response.Status.NOT_FOUND).get();
+
+        } finally {
+            third.shutdownJaxRsServer();
+            first.shutdownJaxRsServer();
+        }
+    }
+
+    @Test
+    public void jvmScopedRejected() {
+        thrown.expect(JaxRsException.class);
+        thrown.expectMessage("JVM scoped servers can't be pooled");
+        JaxRsServer.forResources(TestResource.class).pooled(2).jvmScoped();
+    }
+
+    @Test
+    public void fixedPortRejected() {
+        thrown.expect(JaxRsException.class);
+        thrown.expectMessage("can't listen on a specific port");
+        JaxRsServer.forResources(TestResource.class).port(8080).pooled(2);
+    }
+
+}
@@ -0,0 +1,145 @@
+package org.testfun.jee;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.testfun.jee.runner.jaxrs.RestRequest;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class JaxRsServerStreamingTest {
+
+    private static final int SIZE = 3 * 1024 * 1024 + 17;
+
+    @Rule
+    public JaxRsServer jaxRsServer = JaxRsServer.forResources(TestResource.class);
+
+    @Rule
+    public JaxRsServer inMemoryServer = JaxRsServer.forResources(TestResource.class).inMemory();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void getAsBytes() {
+        assertArrayEquals(expectedBytes(SIZE), bytesRequest(jaxRsServer, SIZE).getAsBytes());
+        assertArrayEquals(expectedBytes(1000), bytesRequest(inMemoryServer, 1000).getAsBytes());
+    }
+
+    @Test
+    public void getAsStream() throws IOException {
+        assertStream(bytesRequest(jaxRsServer, SIZE).getAsStream(), SIZE);
+        assertStream(bytesRequest(inMemoryServer, 1000).getAsStream(), 1000);
+    }
+
+    @Test
+    public void getTo() throws IOException {
+        Path file = temporaryFolder.getRoot().toPath().resolve("export.bin");
+
+        assertEquals(SIZE, bytesRequest(jaxRsServer, SIZE).getTo(file));
+        assertStream(Files.newInputStream(file), SIZE);
+
+        assertEquals(10, bytesRequest(inMemoryServer, 10).getTo(file));
+        assertStream(Files.newInputStream(file), 10);
+    }
+
+    @Test
+    public void getTyped() {
+        assertEquals(new JaxRsTestObject("Here it is", 12), jaxRsServer.jsonRequest("/rest/test/known").queryParam("num", 12).get(JaxRsTestObject.class));
+        assertEquals(new JaxRsTestObject("Here it is", 13), inMemoryServer.jsonRequest("/rest/test/known").queryParam("num", 13).get(JaxRsTestObject.class));
+    }
+
+    @Test
+    public void getTypedNotFound() {
+        jaxRsServer.expectFailureResponse(Response.Status.NOT_FOUND, "I can't find it");
+        jaxRsServer.jsonRequest("/rest/test/unknown").get(JaxRsTestObject.class);
+    }
+
+    @Test
+    public void unexpectedStatusReleasesConnection() {
+        // The pool has a single connection - the failed requests must not keep it
+        JaxRsServer server = JaxRsServer.forResources(TestResource.class).clientPoolSize(1);
+        server.startJaxRsServer();
+        try {
+            for (int i = 0; i < 3; ++i) {
+                try {
+                    bytesRequest(server, SIZE).expectStatus(Response.Status.CREATED).getAsStream();
+                    throw new IllegalStateException("Expected failure");
+                } catch (AssertionError e) {
+                    // expected
+                }
+            }
+            assertEquals(10, bytesRequest(server, 10).getAsBytes().length);
+
+        } finally {
+            server.shutdownJaxRsServer();
+        }
+    }
+
+    @Test
+    public void uploadStream() {
+        assertEquals(SIZE + ":" + sum(SIZE), uploadRequest(jaxRsServer).body(new ByteArrayInputStream(expectedBytes(SIZE))).post());
+        assertEquals(1000 + ":" + sum(1000), uploadRequest(inMemoryServer).body(new ByteArrayInputStream(expectedBytes(1000))).post());
+    }
+
+    @Test
+    public void uploadFile() throws IOException {
+        Path file = temporaryFolder.newFile("upload.bin").toPath();
+        Files.write(file, expectedBytes(SIZE));
+
+        assertEquals(SIZE + ":" + sum(SIZE), uploadRequest(jaxRsServer).body(file).post());
+        assertEquals(SIZE + ":" + sum(SIZE), uploadRequest(inMemoryServer).body(file).post());
+    }
+
+    private RestRequest bytesRequest(JaxRsServer server, int size) {
+        return server.jsonRequest("/rest/test/bytes").queryParam("size", size);
+    }
+
+    private RestRequest uploadRequest(JaxRsServer server) {
+        return server.jsonRequest("/rest/test/upload").accept(MediaType.APPLICATION_OCTET_STREAM_TYPE);
+    }
+
+    private void assertStream(InputStream in, int size) throws IOException {
+        try {
+            int count = 0;
+            for (int b = in.read(); b >= 0; b = in.read()) {
+                assertEquals(count % 251, b);
+                ++count;
+            }
+            assertEquals(size, count);
+
+        } finally {
+            in.close();
+        }
+    }
+
+    private byte[] expectedBytes(int size) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; ++i) {
+            bytes[i] = (byte) (i % 251);
+        }
+        return bytes;
+    }
+
+    private long sum(int size) {
+        long sum = 0;
+        for (int i = 0; i < size; ++i) {
+            sum += i % 251;
+        }
+        return sum;
+    }
+
+}
@@ -5,12 +5,15 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.skyscreamer.jsonassert.JSONAssert;
 import org.skyscreamer.jsonassert.JSONCompareMode;
+import org.testfun.jee.runner.jaxrs.RestClient;
 
 import javax.ws.rs.ClientErrorException;
 import javax.ws.rs.core.Response;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 public class JaxRsServerTest {
 
@@ -147,6 +150,34 @@ public class JaxRsServerTest {
         assertEquals("Manually set port should match the current port", 34567, port2);
     }
 
+    @Test
+    public void repeatedRequestsReusePooledConnections() {
+        JaxRsServer singleConnectionServer = JaxRsServer.forResources(TestResource.class).clientPoolSize(1);
+        singleConnectionServer.startJaxRsServer();
+        try {
+            // Responses that are never read (e.g. failures) must not hold on to the only pooled connection
+            for (int i = 0; i < 50; ++i) {
+                singleConnectionServer.jsonRequest("/rest/test/unknown").expectStatus(Response.Status.NOT_FOUND).get();
+                singleConnectionServer.jsonRequest("/rest/test/known").get();
+            }
+
+        } finally {
+            singleConnectionServer.shutdownJaxRsServer();
+        }
+    }
+
+    @Test
+    public void webTargetsCached() {
+        RestClient client = RestClient.pooled(1);
+        try {
+            assertSame(client.target("http://localhost:1234/rest/test"), client.target("http://localhost:1234/rest/test"));
+            assertNotSame(client.target("http://localhost:1234/rest/test"), client.target("http://localhost:1234/rest/other"));
+
+        } finally {
+            client.close();
+        }
+    }
+
     private void expectJaxRsServerException() {
         // "thrown" is evaluated after the jaxRsServer evaluation and is used for making sure jaxRsServer properly fails if
         // the unexpected failure is caught.
@@ -0,0 +1,86 @@
+package org.testfun.jee;
+
+import io.undertow.UndertowOptions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testfun.jee.examples.ExampleResource;
+import org.testfun.jee.examples.RestData;
+import org.testfun.jee.real.SomeDao;
+import org.testfun.jee.real.SomeEntity;
+import org.testfun.jee.runner.jaxrs.RestRequest;
+
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+@RunWith(EjbWithMockitoRunner.class)
+public class JaxRsServerThreadsTest {
+
+    private static final int CONCURRENCY = 6;
+
+    @Mock
+    private SomeDao someDao;
+
+    @Test
+    public void virtualThreadsNotLimitedByWorkers() throws Exception {
+        // Every request blocks until all of them are handled concurrently - more than the single worker thread
+        final CountDownLatch allArrived = new CountDownLatch(CONCURRENCY);
+        when(someDao.getAll()).thenAnswer(new Answer<List<SomeEntity>>() {
+            @Override
+            public List<SomeEntity> answer(InvocationOnMock invocation) throws Throwable {
+                allArrived.countDown();
+                assertTrue("Requests weren't handled concurrently", allArrived.await(10, TimeUnit.SECONDS));
+                return Collections.singletonList(new SomeEntity(0, "kuki", "puki"));
+            }
+        });
+
+        JaxRsServer server = JaxRsServer.forResources(ExampleResource.class).workerThreads(1).virtualThreads();
+        server.startJaxRsServer();
+        try {
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < CONCURRENCY; ++i) {
+                futures.add(server.jsonRequest("/example/use_ejb").header("index", 0).getAsync());
+            }
+
+            assertEquals(Collections.nCopies(CONCURRENCY, "kuki"), RestRequest.joinAll(futures));
+
+        } finally {
+            server.shutdownJaxRsServer();
+        }
+    }
+
+    @Test
+    public void undertowSettings() {
+        JaxRsServer server = JaxRsServer.forResources(ExampleResource.class)
+                .ioThreads(1)
+                .workerThreads(2)
+                .bufferSize(4096)
+                .directBuffers(false)
+                .serverOption(UndertowOptions.MAX_ENTITY_SIZE, 20L);
+        server.startJaxRsServer();
+        try {
+            server.jsonRequest("/example/data/1").get();
+
+            // Undertow fails reading the body, which RESTEasy reports as a bad request
+            server.jsonRequest("/example/data")
+                    .body(new RestData(1, "more than twenty bytes of data"))
+                    .expectStatus(Response.Status.BAD_REQUEST)
+                    .post();
+
+        } finally {
+            server.shutdownJaxRsServer();
+        }
+    }
+
+}
@@ -0,0 +1,10 @@
+package org.testfun.jee;
+
+import org.mockito.Mock;
+
+public abstract class MockEjbLocalTestBase {
+
+    @Mock
+    protected MockEjbLocal mock;
+
+}
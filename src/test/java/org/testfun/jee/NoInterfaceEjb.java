@@ -1,10 +1,17 @@
 package org.testfun.jee;
 
 import javax.ejb.Stateless;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Stateless
 public class NoInterfaceEjb {
 
+    static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    public NoInterfaceEjb() {
+        INSTANCES.incrementAndGet();
+    }
+
     public String returnSomething() {
         return "something";
     }
@@ -0,0 +1,16 @@
+package org.testfun.jee;
+
+import javax.ejb.EJB;
+import javax.ejb.Stateless;
+
+@Stateless
+public class NoInterfaceEjbWithFinalMethod {
+
+    @EJB
+    private NoInterfaceEjb noInterfaceEjb;
+
+    public final String returnSomethingFinal() {
+        return noInterfaceEjb.returnSomething();
+    }
+
+}
@@ -0,0 +1,183 @@
+package org.testfun.jee;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.Statement;
+import org.testfun.jee.real.SomeDao;
+import org.testfun.jee.real.SomeEntity;
+import org.testfun.jee.runner.ExecutedStatement;
+import org.testfun.jee.runner.QueryPlan;
+import org.testfun.jee.runner.SingletonDataSource;
+
+import javax.ejb.EJB;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+@RunWith(EjbWithMockitoRunner.class)
+public class QueryMonitorTest {
+
+    @Rule
+    public QueryMonitor queryMonitor = QueryMonitor.detectNPlusOne(3);
+
+    @EJB
+    private SomeDao dao;
+
+    @Test
+    @MaxQueries(5)
+    public void recordsStatements() {
+        dao.save(new SomeEntity(0, "kuki", "puki"));
+        dao.save(new SomeEntity(0, "muki", "puki"));
+        assertEquals(2, dao.getAll().size());
+
+        List<ExecutedStatement> statements = queryMonitor.getStatements();
+        ExecutedStatement insert = statements.get(statements.size() - 2);
+        assertThat(insert.getSql().toLowerCase()).startsWith("insert into");
+        assertEquals(3, insert.getBindCount());
+        assertEquals(1, insert.getRows());
+
+        ExecutedStatement select = statements.get(statements.size() - 1);
+        assertThat(select.isQuery()).isTrue();
+        assertEquals(2, select.getRows());
+    }
+
+    @Test
+    public void repeatedQueriesWithinLimit() throws Exception {
+        selectById(3);
+    }
+
+    @Test
+    public void nPlusOneDetected() throws Throwable {
+        try {
+            QueryMonitor.detectNPlusOne(3).apply(new SelectStatement(4), method("unlimited"), this).evaluate();
+            fail("Expected the repeated query to be detected");
+
+        } catch (AssertionError e) {
+            assertThat(e.getMessage()).contains("4 x select id, name from someentity where id = ?");
+        }
+    }
+
+    @Test
+    public void tooManyStatements() throws Throwable {
+        try {
+            QueryMonitor.none().apply(new SelectStatement(2), method("limited"), this).evaluate();
+            fail("Expected the query budget to be exceeded");
+
+        } catch (AssertionError e) {
+            assertThat(e.getMessage()).contains("Expected at most 1 JDBC statements but 2 were executed");
+        }
+    }
+
+    @Test
+    public void annotationOverridesMaxRepeats() throws Throwable {
+        QueryMonitor.detectNPlusOne(1).apply(new SelectStatement(4), method("manyRepeatsAllowed"), this).evaluate();
+    }
+
+    @Test
+    public void queryPlans() throws Exception {
+        selectById(2);
+        select("select id from SomeEntity where vcdApiAddress = ?", 1);
+
+        List<QueryPlan> plans = queryMonitor.getQueryPlans();
+        assertEquals(2, plans.size());
+        assertThat(plans.get(0).getFullScans()).isEmpty();
+        assertEquals(Collections.singletonList("SOMEENTITY"), plans.get(1).getFullScans());
+        assertThat(plans.get(1).isFullScanOf("public.SomeEntity")).isTrue();
+    }
+
+    @Test
+    @MaxQueries(2)
+    public void explainingNotRecorded() throws Exception {
+        selectById(2);
+
+        assertEquals(1, queryMonitor.getQueryPlans().size());
+        assertEquals(1, queryMonitor.getQueryPlans().size());
+        assertEquals(2, queryMonitor.getStatements().size());
+    }
+
+    @Test
+    public void fullScanOfLargeTableFails() throws Throwable {
+        try {
+            QueryMonitor.none().explainQueries("SomeEntity").failOnFullScans()
+                    .apply(new SelectStatement("select id from SomeEntity where vcdApiAddress = ?", 1), method("unlimited"), this).evaluate();
+            fail("Expected the full scan to be flagged");
+
+        } catch (AssertionError e) {
+            assertThat(e.getMessage()).contains("select id from SomeEntity where vcdApiAddress = ? [full scan of [SOMEENTITY]]");
+        }
+    }
+
+    @Test
+    public void fullScansOfOtherTablesAreIgnored() throws Throwable {
+        QueryMonitor.none().explainQueries("Orders").failOnFullScans()
+                .apply(new SelectStatement("select id from SomeEntity where vcdApiAddress = ?", 1), method("unlimited"), this).evaluate();
+    }
+
+    @Test
+    public void indexedQueriesPass() throws Throwable {
+        QueryMonitor.none().explainQueries().failOnFullScans()
+                .apply(new SelectStatement(3), method("unlimited"), this).evaluate();
+    }
+
+    @MaxQueries(1)
+    public void limited() {
+    }
+
+    public void unlimited() {
+    }
+
+    @MaxQueries(maxRepeats = 5)
+    public void manyRepeatsAllowed() {
+    }
+
+    private FrameworkMethod method(String name) throws NoSuchMethodException {
+        return new FrameworkMethod(getClass().getMethod(name));
+    }
+
+    private static void selectById(int times) throws SQLException {
+        select("select id, name from SomeEntity where id = ?", times);
+    }
+
+    private static void select(String sql, int times) throws SQLException {
+        Connection connection = SingletonDataSource.getDataSource().getConnection();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 1; i <= times; ++i) {
+                statement.setObject(1, i);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                }
+            }
+        }
+    }
+
+    private static class SelectStatement extends Statement {
+
+        private final String sql;
+
+        private final int times;
+
+        private SelectStatement(int times) {
+            this("select id, name from SomeEntity where id = ?", times);
+        }
+
+        private SelectStatement(String sql, int times) {
+            this.sql = sql;
+            this.times = times;
+        }
+
+        @Override
+        public void evaluate() throws Throwable {
+            select(sql, times);
+        }
+    }
+
+}
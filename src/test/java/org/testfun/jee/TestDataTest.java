@@ -0,0 +1,88 @@
+package org.testfun.jee;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.testfun.jee.real.SomeDao;
+import org.testfun.jee.real.SomeEntity;
+import org.testfun.jee.runner.ExecutedStatement;
+
+import javax.ejb.EJB;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+
+@RunWith(EjbWithMockitoRunner.class)
+public class TestDataTest {
+
+    @Rule
+    public QueryMonitor queryMonitor = QueryMonitor.none();
+
+    @EJB
+    private SomeDao dao;
+
+    @Test
+    public void bulk() {
+        final List<SomeEntity> created = new ArrayList<>();
+        int rows = TestData.bulk(SomeEntity.class, 2500, new IntFunction<SomeEntity>() {
+            @Override
+            public SomeEntity apply(int i) {
+                SomeEntity entity = new SomeEntity(0, "name " + i, "address " + i);
+                created.add(entity);
+                return entity;
+            }
+        });
+        assertEquals(2500, rows);
+
+        Set<Integer> ids = new HashSet<>();
+        for (SomeEntity entity : created) {
+            ids.add(entity.getId());
+        }
+        assertEquals(2500, ids.size());
+        assertThat(ids).excludes(0);
+
+        List<SomeEntity> loaded = dao.getAll();
+        assertEquals(2500, loaded.size());
+        assertThat(loaded).contains(created.get(0), created.get(2499));
+    }
+
+    @Test
+    public void bulkUsesBatches() {
+        TestData.bulk(SomeEntity.class, 1500, new IntFunction<SomeEntity>() {
+            @Override
+            public SomeEntity apply(int i) {
+                return new SomeEntity(0, "name " + i, null);
+            }
+        });
+
+        int batches = 0;
+        long rows = 0;
+        for (ExecutedStatement statement : queryMonitor.getStatements()) {
+            if (statement.getSql().startsWith("insert into SomeEntity")) {
+                ++batches;
+                rows += statement.getRows();
+            }
+        }
+        assertEquals(2, batches);
+        assertEquals(1500, rows);
+    }
+
+    @Test
+    public void bulkAfterPersist() {
+        dao.save(new SomeEntity(0, "persisted", null));
+        TestData.bulk(SomeEntity.class, 3, new IntFunction<SomeEntity>() {
+            @Override
+            public SomeEntity apply(int i) {
+                return new SomeEntity(0, "name " + i, null);
+            }
+        });
+
+        assertEquals(4, dao.getAll().size());
+    }
+
+}
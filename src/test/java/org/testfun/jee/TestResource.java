@@ -7,9 +7,13 @@ import lombok.NoArgsConstructor;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlRootElement;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
@@ -75,4 +79,32 @@ public class TestResource {
     public Response postCreated(){
         return Response.status(Response.Status.CREATED).entity(new JaxRsTestObject("diet", 4)).location(URI.create("http://localhost/location")).type(MediaType.APPLICATION_JSON).build();
     }
+
+    @GET
+    @Path("/bytes")
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    public StreamingOutput bytes(@QueryParam("size") final int size) {
+        return new StreamingOutput() {
+            @Override
+            public void write(OutputStream output) throws IOException {
+                for (int i = 0; i < size; ++i) {
+                    output.write(i % 251);
+                }
+            }
+        };
+    }
+
+    @POST
+    @Path("/upload")
+    @Consumes(MediaType.APPLICATION_OCTET_STREAM)
+    @Produces(MediaType.TEXT_PLAIN)
+    public String upload(InputStream input) throws IOException {
+        long size = 0;
+        long sum = 0;
+        for (int b = input.read(); b >= 0; b = input.read()) {
+            ++size;
+            sum += b;
+        }
+        return size + ":" + sum;
+    }
 }
@@ -0,0 +1,78 @@
+package org.testfun.jee;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.testfun.jee.real.SomeDaoImpl;
+import org.testfun.jee.real.SomeEntity;
+import org.testfun.jee.runner.DependencyInjector;
+import org.testfun.jee.runner.SingletonEntityManager;
+
+import javax.ejb.EJB;
+import java.lang.reflect.Proxy;
+
+import static org.junit.Assert.*;
+
+@RunWith(EjbWithMockitoRunner.class)
+public class TransactionalProxyTest {
+
+    @EJB
+    private EjbLocal ejb;
+
+    @EJB
+    private NoInterfaceEjb noInterfaceEjb;
+
+    @EJB
+    private NoInterfaceEjbWithFinalMethod noInterfaceEjbWithFinalMethod;
+
+    @EJB
+    private SomeDaoImpl someDaoImpl;
+
+    @Mock
+    private MockEjbLocal mockEjbLocal;
+
+    @Test
+    public void generatedProxyForInterfaceView() {
+        assertFalse("Expected a generated proxy class", Proxy.isProxyClass(ejb.getClass()));
+        assertNotEquals(EjbStateless.class, ejb.getClass());
+
+        try {
+            ejb.nonAppException();
+            fail("Should have thrown an exception");
+        } catch (IllegalStateException e) {
+            assertEquals("Should rollback non application exceptions", e.getMessage());
+            assertTrue("Transaction should have been rolled back", SingletonEntityManager.getInstance().getTransaction().getRollbackOnly());
+        }
+    }
+
+    @Test
+    public void generatedProxyForNoInterfaceView() {
+        assertNotEquals(NoInterfaceEjb.class, noInterfaceEjb.getClass());
+        assertEquals("something", noInterfaceEjb.returnSomething());
+    }
+
+    @Test
+    public void generatedSubclassProxyForInjectionByClass() {
+        assertNotEquals(SomeDaoImpl.class, someDaoImpl.getClass());
+
+        someDaoImpl.save(new SomeEntity(0, "kuki", "puki"));
+        assertEquals(1, someDaoImpl.getAll().size());
+    }
+
+    @Test
+    public void proxyDoesNotInvokeConstructor() {
+        int instances = NoInterfaceEjb.INSTANCES.get();
+        DependencyInjector.getInstance().reset();
+        DependencyInjector.getInstance().injectDependencies(this);
+
+        assertNotEquals(NoInterfaceEjb.class, noInterfaceEjb.getClass());
+        assertEquals(instances + 1, NoInterfaceEjb.INSTANCES.get());
+    }
+
+    @Test
+    public void noProxyForClassWithFinalMethods() {
+        assertEquals(NoInterfaceEjbWithFinalMethod.class, noInterfaceEjbWithFinalMethod.getClass());
+        assertEquals("something", noInterfaceEjbWithFinalMethod.returnSomethingFinal());
+    }
+
+}
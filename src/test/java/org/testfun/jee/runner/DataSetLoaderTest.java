@@ -0,0 +1,31 @@
+package org.testfun.jee.runner;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class DataSetLoaderTest {
+
+    @Test
+    public void csv() throws Exception {
+        List<Map<String, Object>> rows = DataSetLoader.readCsv(new StringReader("ID,NAME,NOTE\r\n1,kuki,\n\n2,\"a, \"\"b\"\"\nc\",\"\"\n"));
+
+        assertEquals(2, rows.size());
+        assertEquals("1", rows.get(0).get("ID"));
+        assertEquals("kuki", rows.get(0).get("NAME"));
+        assertNull(rows.get(0).get("NOTE"));
+        assertEquals("a, \"b\"\nc", rows.get(1).get("NAME"));
+        assertEquals("", rows.get(1).get("NOTE"));
+    }
+
+    @Test(expected = EjbWithMockitoRunnerException.class)
+    public void csvWithMissingValues() throws Exception {
+        DataSetLoader.readCsv(new StringReader("ID,NAME\n1\n"));
+    }
+
+}
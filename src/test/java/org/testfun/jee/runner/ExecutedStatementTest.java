@@ -0,0 +1,28 @@
+package org.testfun.jee.runner;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ExecutedStatementTest {
+
+    @Test
+    public void shapeReplacesLiterals() {
+        assertEquals("select * from t1 where id = ? and name = ?", ExecutedStatement.shapeOf("SELECT *\n  FROM t1 WHERE id = 17 AND name = 'O''Brien'"));
+    }
+
+    @Test
+    public void shapeCollapsesParameterLists() {
+        assertEquals("select * from t where id in (?)", ExecutedStatement.shapeOf("select * from t where id in (?, ?,?)"));
+        assertEquals(ExecutedStatement.shapeOf("select * from t where id in (1, 2)"), ExecutedStatement.shapeOf("select * from t where id in (3)"));
+    }
+
+    @Test
+    public void queries() {
+        assertTrue(new ExecutedStatement(" select 1 from t", 0, 0, 0).isQuery());
+        assertFalse(new ExecutedStatement("update t set a = 1", 0, 0, 0).isQuery());
+    }
+
+}
@@ -0,0 +1,39 @@
+package org.testfun.jee.runner;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class QueryPlanTest {
+
+    private static final String JOIN_PLAN = "[range variable 1\n" +
+            "  join type=INNER\n" +
+            "  table=SMALL\n" +
+            "  alias=S\n" +
+            "  cardinality=0\n" +
+            "  access=FULL SCAN\n" +
+            "  ][range variable 2\n" +
+            "  join type=INNER\n" +
+            "  table=BIG\n" +
+            "  alias=B\n" +
+            "  cardinality=0\n" +
+            "  access=INDEX PRED\n" +
+            "  join condition = [index=SYS_IDX_SYS_PK_10092_10093\n" +
+            "  ]]\n" +
+            "SUBQUERIES[]\n";
+
+    @Test
+    public void fullScans() {
+        assertEquals(Collections.singletonList("SMALL"), QueryPlan.parseFullScans(JOIN_PLAN));
+    }
+
+    @Test
+    public void fullScansOfSubQueries() {
+        String plan = JOIN_PLAN.replace("INDEX PRED", "FULL SCAN") + "[range variable 1\n  table=SMALL\n  access=FULL SCAN\n]";
+        assertEquals(Arrays.asList("SMALL", "BIG"), QueryPlan.parseFullScans(plan));
+    }
+
+}
@@ -0,0 +1,109 @@
+package org.testfun.jee.runner;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SchemaTemplateTest {
+
+    @Test
+    public void filterKeepsOnlyUserSchema() {
+        List<String> script = Arrays.asList(
+                "SET DATABASE UNIQUE NAME HSQLDBA14D9EEE81",
+                "SET FILES LOG TRUE",
+                "CREATE USER SA PASSWORD DIGEST 'd41d8cd98f00b204e9800998ecf8427e'",
+                "ALTER USER SA SET LOCAL TRUE",
+                "CREATE SCHEMA PUBLIC AUTHORIZATION DBA",
+                "SET SCHEMA PUBLIC",
+                "CREATE SEQUENCE PUBLIC.HIBERNATE_SEQUENCE AS INTEGER START WITH 1",
+                "CREATE MEMORY TABLE PUBLIC.FOO(ID INTEGER NOT NULL PRIMARY KEY,NAME VARCHAR(20))",
+                "CREATE INDEX BI ON PUBLIC.FOO(NAME)",
+                "ALTER SEQUENCE SYSTEM_LOBS.LOB_ID RESTART WITH 1",
+                "ALTER SEQUENCE PUBLIC.HIBERNATE_SEQUENCE RESTART WITH 1",
+                "SET DATABASE DEFAULT INITIAL SCHEMA PUBLIC",
+                "GRANT DBA TO SA",
+                "SET SCHEMA SYSTEM_LOBS",
+                "INSERT INTO BLOCKS VALUES(0,2147483647,0)",
+                "SET SCHEMA PUBLIC",
+                "INSERT INTO FOO VALUES(1,'kuki')");
+
+        assertEquals(Arrays.asList(
+                "SET SCHEMA PUBLIC",
+                "CREATE SEQUENCE PUBLIC.HIBERNATE_SEQUENCE AS INTEGER START WITH 1",
+                "CREATE MEMORY TABLE PUBLIC.FOO(ID INTEGER NOT NULL PRIMARY KEY,NAME VARCHAR(20))",
+                "CREATE INDEX BI ON PUBLIC.FOO(NAME)",
+                "ALTER SEQUENCE PUBLIC.HIBERNATE_SEQUENCE RESTART WITH 1",
+                "SET SCHEMA PUBLIC",
+                "INSERT INTO FOO VALUES(1,'kuki')"),
+                SchemaTemplate.filter(script));
+    }
+
+    @Test
+    public void mappingHashCoversClassPathJars() throws Exception {
+        File jar = File.createTempFile("testfun-domain", ".jar");
+        String classPath = System.getProperty("java.class.path");
+        try {
+            Files.write(jar.toPath(), new byte[]{1});
+            System.setProperty("java.class.path", classPath + File.pathSeparator + jar.getAbsolutePath());
+            String hash = SchemaTemplate.getInstance().getMappingHash();
+            assertEquals(hash, SchemaTemplate.getInstance().getMappingHash());
+
+            Files.write(jar.toPath(), new byte[]{1, 2});
+            assertNotEquals(hash, SchemaTemplate.getInstance().getMappingHash());
+
+        } finally {
+            System.setProperty("java.class.path", classPath);
+            Files.delete(jar.toPath());
+        }
+    }
+
+    @Test
+    public void captureAndRestore() throws Exception {
+        List<String> statements;
+        try (
+                Connection connection = DriverManager.getConnection("jdbc:hsqldb:mem:schema_template_source");
+                Statement statement = connection.createStatement()
+        ) {
+            statement.execute("CREATE SCHEMA other");
+            statement.execute("CREATE TABLE other.bar (id INTEGER PRIMARY KEY)");
+            statement.execute("CREATE TABLE foo (id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, name VARCHAR(20) NOT NULL UNIQUE)");
+            statement.execute("INSERT INTO foo (name) VALUES ('kuki')");
+            statement.execute("INSERT INTO other.bar VALUES (7)");
+
+            statements = SchemaTemplate.capture(connection);
+        }
+
+        try (
+                Connection connection = DriverManager.getConnection("jdbc:hsqldb:mem:schema_template_target");
+                Statement statement = connection.createStatement()
+        ) {
+            SchemaTemplate.restore(connection, statements);
+
+            // The restored connection is back in the default schema
+            statement.execute("INSERT INTO foo (name) VALUES ('puki')");
+            try (ResultSet resultSet = statement.executeQuery("SELECT name FROM foo ORDER BY id")) {
+                assertTrue(resultSet.next());
+                assertEquals("kuki", resultSet.getString(1));
+                assertTrue(resultSet.next());
+                assertEquals("puki", resultSet.getString(1));
+            }
+
+            try (ResultSet resultSet = statement.executeQuery("SELECT id FROM other.bar")) {
+                assertTrue(resultSet.next());
+                assertEquals(7, resultSet.getInt(1));
+            }
+        }
+    }
+
+}
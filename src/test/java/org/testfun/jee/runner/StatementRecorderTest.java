@@ -0,0 +1,125 @@
+package org.testfun.jee.runner;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.testfun.jee.EjbWithMockitoRunner;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(EjbWithMockitoRunner.class)
+public class StatementRecorderTest {
+
+    private static final String QUERY = "select count(*) from INFORMATION_SCHEMA.SYSTEM_USERS";
+
+    @Test
+    public void statementsNotProxiedWhileNotStarted() throws Exception {
+        assertFalse(StatementRecorder.isStarted());
+
+        Connection connection = SingletonDataSource.getDataSource().getConnection();
+        try (PreparedStatement statement = connection.prepareStatement(QUERY)) {
+            assertFalse(Proxy.isProxyClass(statement.getClass()));
+        }
+    }
+
+    @Test
+    public void resultSetsProxiedOnlyWhileRecording() throws Exception {
+        Connection connection = SingletonDataSource.getDataSource().getConnection();
+        StatementRecorder recorder = StatementRecorder.start();
+        try (PreparedStatement statement = connection.prepareStatement(QUERY)) {
+            assertTrue(Proxy.isProxyClass(statement.getClass()));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                assertTrue(Proxy.isProxyClass(resultSet.getClass()));
+            }
+            assertEquals(1, recorder.stop());
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                assertFalse(Proxy.isProxyClass(resultSet.getClass()));
+            }
+            assertEquals(1, recorder.getCount());
+
+        } finally {
+            recorder.stop();
+        }
+    }
+
+    @Test
+    public void restoreStopsRecordersStartedSince() {
+        StatementRecorder outer = StatementRecorder.start();
+        try {
+            StatementRecorder.start();
+            StatementRecorder.start();
+
+            StatementRecorder.restore(outer);
+            assertSame(outer, StatementRecorder.current());
+
+        } finally {
+            outer.stop();
+        }
+
+        assertNull(StatementRecorder.current());
+        assertFalse(StatementRecorder.isStarted());
+    }
+
+    @Test
+    public void requestRecordsStatementsOfUnboundThreads() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            StatementRecorder request = executor.submit(new Callable<StatementRecorder>() {
+                @Override
+                public StatementRecorder call() {
+                    return StatementRecorder.startForRequest();
+                }
+            }).get();
+
+            try {
+                // Work the resource hands to another thread (bound to no test)
+                Thread worker = new Thread() {
+                    @Override
+                    public void run() {
+                        executeQuery();
+                    }
+                };
+                worker.start();
+                worker.join();
+                assertEquals(1, request.getCount());
+
+                // The thread running the test is bound to its context and isn't working for the request
+                executeQuery();
+                assertEquals(1, request.getCount());
+
+            } finally {
+                request.stop();
+            }
+
+        } finally {
+            executor.shutdown();
+        }
+
+        assertFalse(StatementRecorder.isRecording());
+    }
+
+    private static void executeQuery() {
+        try {
+            Connection connection = SingletonDataSource.getDataSource().getConnection();
+            try (PreparedStatement statement = connection.prepareStatement(QUERY)) {
+                statement.executeQuery().close();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,24 @@
+package org.testfun.jee.runner;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class WorkerDatabaseTest {
+
+    @Test
+    public void workerConnectionUrl() {
+        assertEquals("jdbc:hsqldb:mem:testfun_worker_1", WorkerDatabase.getWorkerConnectionUrl("jdbc:hsqldb:file:target/hsql/db", 1));
+    }
+
+    @Test
+    public void workerConnectionUrlKeepsProperties() {
+        assertEquals("jdbc:hsqldb:mem:testfun_worker_2;sql.syntax_ora=true", WorkerDatabase.getWorkerConnectionUrl("jdbc:hsqldb:mem:db;sql.syntax_ora=true", 2));
+    }
+
+    @Test(expected = EjbWithMockitoRunnerException.class)
+    public void nonHsqldbConnectionUrl() {
+        WorkerDatabase.getWorkerConnectionUrl("jdbc:mysql://localhost/db", 1);
+    }
+
+}
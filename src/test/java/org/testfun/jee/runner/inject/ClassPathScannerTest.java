@@ -1,8 +1,23 @@
 package org.testfun.jee.runner.inject;
 
 import org.junit.Test;
+import org.testfun.jee.EjbSingleton;
+import org.testfun.jee.examples.FacadeImpl;
+import org.testfun.jee.examples.UserEjbImpl;
+import org.testfun.jee.real.SomeDaoImpl;
+import org.testfun.jee.real.SomeEntity;
 
+import javax.ejb.Singleton;
+import javax.ejb.Stateless;
 import java.io.File;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -14,4 +29,107 @@ public class ClassPathScannerTest {
             assertTrue(root + "doesn't exit", new File(root).exists());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void scanForAnnotatedClasses() {
+        final Set<Class<?>> found = new HashSet<>();
+        new ClassPathScanner().scanForAnnotatedClasses(new ClassPathScanner.Handler() {
+            @Override
+            public void classFound(Class<?> aClass) {
+                found.add(aClass);
+            }
+        }, Stateless.class);
+
+        assertTrue(found.contains(SomeDaoImpl.class));
+        assertFalse(found.contains(SomeEntity.class));
+        assertFalse(found.contains(EjbSingleton.class));
+        for (Class<?> aClass : found) {
+            assertNotNull(aClass + " isn't stateless", aClass.getAnnotation(Stateless.class));
+        }
+    }
+
+    @Test
+    public void scanFromAllCommonPoolWorkers() throws Exception {
+        // Every worker of the common pool blocks on a scan - the scan must not need the common pool for walking the roots
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        final CountDownLatch allWorkersBusy = new CountDownLatch(parallelism);
+        final CountDownLatch scansDone = new CountDownLatch(parallelism);
+        final AtomicInteger successfulScans = new AtomicInteger();
+        for (int i = 0; i < parallelism; ++i) {
+            ForkJoinPool.commonPool().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        allWorkersBusy.countDown();
+                        allWorkersBusy.await();
+
+                        final Set<Class<?>> found = new HashSet<>();
+                        new ClassPathScanner().scanForAnnotatedClasses(new ClassPathScanner.Handler() {
+                            @Override
+                            public void classFound(Class<?> aClass) {
+                                found.add(aClass);
+                            }
+                        }, Stateless.class);
+
+                        if (found.contains(SomeDaoImpl.class)) {
+                            successfulScans.incrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        scansDone.countDown();
+                    }
+                }
+            });
+        }
+
+        // Wait using a latch rather than the tasks' futures, which would let this thread help running the walk
+        assertTrue("Scans didn't complete", scansDone.await(30, TimeUnit.SECONDS));
+        assertEquals(parallelism, successfulScans.get());
+    }
+
+    @Test
+    public void scanIncludedPackagesOnly() {
+        final Set<Class<?>> found = new HashSet<>();
+        new ClassPathScanner(new PackageFilter("org.testfun.jee.real.**, org.testfun.jee.examples", "org.testfun.jee.real")).scanForAnnotatedClasses(new ClassPathScanner.Handler() {
+            @Override
+            public void classFound(Class<?> aClass) {
+                found.add(aClass);
+            }
+        }, Stateless.class, Singleton.class);
+
+        assertEquals(new HashSet<>(Arrays.<Class<?>>asList(FacadeImpl.class, UserEjbImpl.class)), found);
+    }
+
+    @Test
+    public void packageFilter() {
+        PackageFilter packageFilter = new PackageFilter("com.ourco.**", "com.ourco.generated");
+
+        assertTrue(packageFilter.accepts("com/ourco/Bean.class"));
+        assertTrue(packageFilter.accepts("com/ourco/dao/Dao.class"));
+        assertFalse(packageFilter.accepts("com/ourcoffee/Bean.class"));
+        assertFalse(packageFilter.accepts("com/ourco/generated/Stub.class"));
+        assertFalse(packageFilter.accepts("org/other/Bean.class"));
+
+        assertTrue(packageFilter.mayContain("com"));
+        assertTrue(packageFilter.mayContain("com/ourco/dao"));
+        assertFalse(packageFilter.mayContain("org"));
+        assertFalse(packageFilter.mayContain("com/ourco/generated"));
+
+        assertTrue(new PackageFilter(null, null).accepts("any/Class.class"));
+    }
+
+    @Test
+    public void readAnnotationsFromClassFile() throws Exception {
+        ClassFileAnnotationReader reader = new ClassFileAnnotationReader(Stateless.class, Singleton.class);
+
+        assertTrue(reader.isAnnotated(classFile(SomeDaoImpl.class)));
+        assertTrue(reader.isAnnotated(classFile(EjbSingleton.class)));
+        assertFalse(reader.isAnnotated(classFile(SomeEntity.class)));
+        assertFalse(reader.isAnnotated(classFile(ClassPathScannerTest.class)));
+    }
+
+    private InputStream classFile(Class<?> aClass) {
+        return aClass.getResourceAsStream(aClass.getSimpleName() + ".class");
+    }
+}
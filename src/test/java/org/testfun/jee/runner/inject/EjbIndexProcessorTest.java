@@ -0,0 +1,86 @@
+package org.testfun.jee.runner.inject;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.BufferedReader;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class EjbIndexProcessorTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void writeIndex() throws Exception {
+        File sources = temporaryFolder.newFolder("src");
+        File output = temporaryFolder.newFolder("classes");
+
+        File service = writeSource(sources, "Service.java", "package p; public interface Service {}");
+        File bean = writeSource(sources, "ServiceBean.java", "package p; @javax.ejb.Stateless public class ServiceBean implements Service, java.io.Serializable {}");
+        File singleton = writeSource(sources, "Holder.java", "package p; public class Holder { @javax.ejb.Singleton public static class Inner {} }");
+        File plain = writeSource(sources, "Plain.java", "package p; public class Plain implements Service {}");
+
+        compile(output, service, bean, singleton, plain);
+
+        Map<String, Set<String>> index = readIndex(output);
+        assertEquals(new LinkedHashSet<>(Arrays.asList("p.ServiceBean", "p.Holder$Inner")), index.keySet());
+        assertEquals(new LinkedHashSet<>(Arrays.asList("p.Service", "java.io.Serializable")), index.get("p.ServiceBean"));
+        assertEquals(Collections.<String>emptySet(), index.get("p.Holder$Inner"));
+    }
+
+    @Test
+    public void mergeWithExistingIndexOnIncrementalCompilation() throws Exception {
+        File sources = temporaryFolder.newFolder("src");
+        File output = temporaryFolder.newFolder("classes");
+
+        File first = writeSource(sources, "First.java", "package p; @javax.ejb.Stateless public class First {}");
+        compile(output, first);
+
+        File second = writeSource(sources, "Second.java", "package p; @javax.ejb.Singleton public class Second {}");
+        compile(output, second);
+
+        assertEquals(new LinkedHashSet<>(Arrays.asList("p.First", "p.Second")), readIndex(output).keySet());
+    }
+
+    private File writeSource(File sources, String name, String content) throws Exception {
+        File source = new File(sources, name);
+        Files.write(source.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return source;
+    }
+
+    private void compile(File output, File... sources) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertNotNull("Tests must run on a JDK", compiler);
+
+        String[] options = {
+                "-processor", EjbIndexProcessor.class.getName(),
+                "-classpath", System.getProperty("java.class.path") + File.pathSeparator + output,
+                "-d", output.getPath()
+        };
+        String[] arguments = Arrays.copyOf(options, options.length + sources.length);
+        for (int i = 0; i < sources.length; ++i) {
+            arguments[options.length + i] = sources[i].getPath();
+        }
+
+        assertEquals("Compilation failed", 0, compiler.run(null, null, null, arguments));
+    }
+
+    private Map<String, Set<String>> readIndex(File output) throws Exception {
+        try (BufferedReader reader = Files.newBufferedReader(new File(output, EjbIndex.LOCATION).toPath(), StandardCharsets.UTF_8)) {
+            return EjbIndex.parse(reader);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.testfun.jee.runner.inject;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ScanIndexTest {
+
+    private static final PackageFilter ALL_PACKAGES = new PackageFilter(null, null);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void reuseIndexUntilRootChanges() throws Exception {
+        File root = temporaryFolder.newFolder("classes");
+        Files.write(new File(root, "A.class").toPath(), new byte[]{1, 2, 3});
+
+        ScanIndex scanIndex = new ScanIndex(temporaryFolder.newFolder("index"));
+        CountingScanner scanner = new CountingScanner();
+
+        assertEquals(Arrays.asList("a.A", "b.B"), scanIndex.getClassNames(root, "key", ALL_PACKAGES, scanner));
+        assertEquals(Arrays.asList("a.A", "b.B"), scanIndex.getClassNames(root, "key", ALL_PACKAGES, scanner));
+        assertEquals(1, scanner.scans.get());
+
+        // A different key is indexed separately
+        scanIndex.getClassNames(root, "other", ALL_PACKAGES, scanner);
+        assertEquals(2, scanner.scans.get());
+
+        // Adding a file to the root invalidates the index
+        Files.write(new File(root, "B.class").toPath(), new byte[]{4, 5});
+        scanIndex.getClassNames(root, "key", ALL_PACKAGES, scanner);
+        assertEquals(3, scanner.scans.get());
+    }
+
+    @Test
+    public void modifiedClassFileInvalidatesIndex() throws Exception {
+        File root = temporaryFolder.newFolder("classes");
+        File classFile = new File(root, "A.class");
+        Files.write(classFile.toPath(), new byte[]{1, 2, 3});
+
+        ScanIndex scanIndex = new ScanIndex(temporaryFolder.newFolder("index"));
+        CountingScanner scanner = new CountingScanner();
+        scanIndex.getClassNames(root, "key", ALL_PACKAGES, scanner);
+
+        // Rewritten in place, as compilers do - the directory itself isn't modified
+        Files.write(classFile.toPath(), new byte[]{1, 2, 3, 4});
+        scanIndex.getClassNames(root, "key", ALL_PACKAGES, scanner);
+        assertEquals(2, scanner.scans.get());
+    }
+
+    @Test
+    public void changesOutOfScannedPackagesIgnored() throws Exception {
+        File root = temporaryFolder.newFolder("classes");
+        File scanned = new File(root, "com/ourco");
+        File notScanned = new File(root, "org/other");
+        assertTrue(scanned.mkdirs() && notScanned.mkdirs());
+        Files.write(new File(scanned, "A.class").toPath(), new byte[]{1, 2, 3});
+
+        PackageFilter packageFilter = new PackageFilter("com.ourco", null);
+        ScanIndex scanIndex = new ScanIndex(temporaryFolder.newFolder("index"));
+        CountingScanner scanner = new CountingScanner();
+        scanIndex.getClassNames(root, "key", packageFilter, scanner);
+
+        Files.write(new File(notScanned, "B.class").toPath(), new byte[]{4, 5});
+        Files.write(new File(scanned, "readme.txt").toPath(), new byte[]{6});
+        scanIndex.getClassNames(root, "key", packageFilter, scanner);
+        assertEquals(1, scanner.scans.get());
+
+        Files.write(new File(scanned, "C.class").toPath(), new byte[]{7});
+        scanIndex.getClassNames(root, "key", packageFilter, scanner);
+        assertEquals(2, scanner.scans.get());
+    }
+
+    private static class CountingScanner implements Callable<List<String>> {
+        private final AtomicInteger scans = new AtomicInteger();
+
+        @Override
+        public List<String> call() {
+            scans.incrementAndGet();
+            return Arrays.asList("a.A", "b.B");
+        }
+    }
+}
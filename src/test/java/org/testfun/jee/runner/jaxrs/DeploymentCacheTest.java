@@ -0,0 +1,39 @@
+package org.testfun.jee.runner.jaxrs;
+
+import org.jboss.resteasy.spi.ResteasyProviderFactory;
+import org.junit.Test;
+import org.testfun.jee.JaxRsServerWithProviderTest;
+import org.testfun.jee.TestResource;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DeploymentCacheTest {
+
+    @Test
+    public void providerFactoryPerProviders() {
+        ResteasyProviderFactory withProvider = DeploymentCache.getInstance().getProviderFactory(new Class[]{JaxRsServerWithProviderTest.TestProvider.class});
+        ResteasyProviderFactory withoutProviders = DeploymentCache.getInstance().getProviderFactory(null);
+
+        assertSame(withProvider, DeploymentCache.getInstance().getProviderFactory(new Class[]{JaxRsServerWithProviderTest.TestProvider.class}));
+        assertSame(withoutProviders, DeploymentCache.getInstance().getProviderFactory(new Class[0]));
+        assertNotSame(withProvider, withoutProviders);
+
+        assertTrue(withProvider.getProviderClasses().contains(JaxRsServerWithProviderTest.TestProvider.class));
+        assertFalse(withoutProviders.getProviderClasses().contains(JaxRsServerWithProviderTest.TestProvider.class));
+    }
+
+    @Test
+    public void builtinProvidersRegistered() {
+        ResteasyProviderFactory providerFactory = DeploymentCache.getInstance().getProviderFactory(null);
+        assertFalse(providerFactory.getProviderClasses().isEmpty());
+    }
+
+    @Test
+    public void resourceClassCached() {
+        assertSame(DeploymentCache.getInstance().getResourceClass(TestResource.class), DeploymentCache.getInstance().getResourceClass(TestResource.class));
+    }
+
+}
@@ -0,0 +1,63 @@
+package org.testfun.jee.runner.jaxrs;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; ++i) {
+            histogram.record(i);
+        }
+
+        assertEquals(100, histogram.getTotalCount());
+        assertEquals(50, histogram.getValueAtPercentile(50));
+        assertEquals(99, histogram.getValueAtPercentile(99));
+        assertEquals(100, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void largeValuesWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1000; value <= 1000000; value += 1000) {
+            histogram.record(value * 1000);
+        }
+
+        assertWithinPrecision(500000000L, histogram.getValueAtPercentile(50));
+        assertWithinPrecision(990000000L, histogram.getValueAtPercentile(99));
+        assertWithinPrecision(999000000L, histogram.getValueAtPercentile(99.9));
+        assertEquals(1000000000L, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void bucketsCoverAllValues() {
+        for (long value : new long[]{0, 127, 128, 129, 255, 256, 1234567, Long.MAX_VALUE}) {
+            long highest = LatencyHistogram.highestEquivalentValue(LatencyHistogram.indexOf(value));
+            assertTrue(value + " > " + highest, highest >= value || highest < 0);
+            assertTrue(value + " imprecise: " + highest, highest < 0 || highest - value <= value / 64 + 1);
+        }
+    }
+
+    @Test
+    public void add() {
+        LatencyHistogram first = new LatencyHistogram();
+        first.record(10);
+        LatencyHistogram second = new LatencyHistogram();
+        second.record(20);
+        second.record(30);
+
+        first.add(second);
+        assertEquals(3, first.getTotalCount());
+        assertEquals(30, first.getMaxValue());
+        assertEquals(20, first.getValueAtPercentile(50));
+    }
+
+    private void assertWithinPrecision(long expected, long actual) {
+        assertTrue("Expected " + expected + " but got " + actual, Math.abs(actual - expected) <= expected / 64);
+    }
+
+}
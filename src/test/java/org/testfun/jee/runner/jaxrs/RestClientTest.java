@@ -0,0 +1,35 @@
+package org.testfun.jee.runner.jaxrs;
+
+import org.junit.Test;
+
+import javax.ws.rs.client.WebTarget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class RestClientTest {
+
+    @Test
+    public void targetsCached() {
+        try (RestClient client = RestClient.pooled(1)) {
+            WebTarget target = client.target("http://localhost:8080/kuki");
+            assertSame(target, client.target("http://localhost:8080/kuki"));
+            assertNotSame(target, client.target("http://localhost:8080/puki"));
+        }
+    }
+
+    @Test
+    public void targetCacheBounded() {
+        try (RestClient client = RestClient.pooled(1)) {
+            WebTarget recentlyUsed = client.target("http://localhost:8080/users/0");
+            for (int i = 1; i <= 10 * RestClient.MAX_CACHED_TARGETS; ++i) {
+                client.target("http://localhost:8080/users/" + i);
+                assertSame(recentlyUsed, client.target("http://localhost:8080/users/0"));
+            }
+
+            assertEquals(RestClient.MAX_CACHED_TARGETS, client.getCachedTargetCount());
+        }
+    }
+
+}